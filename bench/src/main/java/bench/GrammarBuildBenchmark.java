@@ -0,0 +1,85 @@
+package bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grammar.Grammar;
+import grammar.Production;
+import main.GrammarIO;
+import parser.ParseTable;
+
+/**
+ * class GrammarBuildBenchmark
+ * Cost of building a Grammar: NULLABLE, FIRST, FOLLOW, LR(0) automaton and SLR table, then the compiled ParseTable
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrammarBuildBenchmark {
+	
+	@Param({"small", "medium", "large"})
+	public String grammar;
+	
+	private String grammarFile;
+	
+	private Grammar built;
+	private List<Production> extra;
+	private final List<Production> none = new ArrayList<Production>();
+	
+	@Setup
+	public void setup() throws IOException{
+		this.grammarFile = GrammarFixtures.writeTemp(GrammarFixtures.grammar(this.grammar));
+		
+		// a new alternative for the head of the last production in the file (the one before is added for start symbol)
+		this.built = GrammarIO.loadFromFile(this.grammarFile);
+		Production[] productions = this.built.getProductions();
+		Production last = productions[productions.length - 2];
+		this.extra = Arrays.asList(new Production(last.head , new String[]{"extra"}));
+	}
+	
+	@Benchmark
+	public Grammar construct() throws IOException{
+		return GrammarIO.loadFromFile(this.grammarFile);
+	}
+	
+	@Benchmark
+	public ParseTable constructAndCompile() throws IOException{
+		return GrammarIO.loadFromFile(this.grammarFile).getParseTable();
+	}
+	
+	/**
+	 * Same as construct with LALR(1) lookaheads, the difference is the LALR phase
+	 * */
+	@Benchmark
+	public Grammar constructLALR() throws IOException{
+		return GrammarIO.loadFromFile(this.grammarFile , true);
+	}
+	
+	/**
+	 * Add a production to a built grammar and remove it again, two calls of Grammar.update, to compare with construct
+	 * */
+	@Benchmark
+	public Grammar updateAddRemove(){
+		this.built.update(this.extra , this.none);
+		this.built.update(this.none , this.extra);
+		return this.built;
+	}
+}
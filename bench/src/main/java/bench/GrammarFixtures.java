@@ -0,0 +1,154 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * class GrammarFixtures
+ * Grammars and inputs used by the benchmarks, written to temporary files in the format read by GrammarIO
+ * */
+public class GrammarFixtures {
+	
+	/**
+	 * grammar from README
+	 * */
+	public static String small(){
+		return "S :: A $\n"
+			+ "A :: e B\n"
+			+ "B :: e B D\n"
+			+ "B :: a C\n"
+			+ "C :: a C\n"
+			+ "C :: r\n"
+			+ "D :: e B D\n"
+			+ "D :: r\n";
+	}
+	
+	/**
+	 * statements and arithmetic expressions, the grammar sentence() generates input for
+	 * */
+	public static String medium(){
+		return "P :: SL\n"
+			+ "SL :: SL S\n"
+			+ "SL :: S\n"
+			+ "S :: id = E ;\n"
+			+ "S :: if ( E ) S\n"
+			+ "S :: while ( E ) S\n"
+			+ "S :: { OPT }\n"
+			+ "OPT :: SL\n"
+			+ "OPT :: empty\n"
+			+ "E :: E + T\n"
+			+ "E :: E - T\n"
+			+ "E :: T\n"
+			+ "T :: T * F\n"
+			+ "T :: T / F\n"
+			+ "T :: F\n"
+			+ "F :: ( E )\n"
+			+ "F :: id\n"
+			+ "F :: num\n"
+			+ "F :: - F\n";
+	}
+	
+	/**
+	 * statement kinds, each with its own keyword, over expressions with levels of binary operators
+	 * */
+	public static String large(int statementKinds , int levels){
+		StringBuilder grammar = new StringBuilder();
+		grammar.append("P :: SL\n");
+		grammar.append("SL :: SL S\n");
+		grammar.append("SL :: S\n");
+		grammar.append("S :: id = E0 ;\n");
+		grammar.append("S :: { OPT }\n");
+		grammar.append("OPT :: SL\n");
+		grammar.append("OPT :: empty\n");
+		for(int i = 0 ; i < statementKinds ; i++){
+			grammar.append("S :: kw" + i + " ( E0 ) S\n");
+		}
+		for(int i = 0 ; i < levels ; i++){
+			grammar.append("E" + i + " :: E" + i + " op" + i + " E" + (i + 1) + "\n");
+			grammar.append("E" + i + " :: E" + (i + 1) + "\n");
+		}
+		grammar.append("E" + levels + " :: ( E0 )\n");
+		grammar.append("E" + levels + " :: id\n");
+		grammar.append("E" + levels + " :: num\n");
+		return grammar.toString();
+	}
+	
+	public static String grammar(String name){
+		if(name.equals("small")) return small();
+		if(name.equals("medium")) return medium();
+		return large(200 , 40);
+	}
+	
+	/**
+	 * a random input of medium() with this many statements, ending with the end marker $
+	 * */
+	public static ArrayList<String> sentence(int statements , long seed){
+		Random random = new Random(seed);
+		ArrayList<String> tokens = new ArrayList<String>();
+		for(int i = 0 ; i < statements ; i++) statement(tokens , random , 0);
+		tokens.add("$");
+		return tokens;
+	}
+	
+	private static void statement(ArrayList<String> tokens , Random random , int depth){
+		int choice = random.nextInt(10);
+		if(depth > 3 || choice < 5) {
+			tokens.add("id");
+			tokens.add("=");
+			expression(tokens , random , 0);
+			tokens.add(";");
+		} else if(choice < 8) {
+			tokens.add(choice < 7 ? "if" : "while");
+			tokens.add("(");
+			expression(tokens , random , 0);
+			tokens.add(")");
+			statement(tokens , random , depth + 1);
+		} else {
+			tokens.add("{");
+			int count = random.nextInt(4);
+			for(int i = 0 ; i < count ; i++) statement(tokens , random , depth + 1);
+			tokens.add("}");
+		}
+	}
+	
+	private static void expression(ArrayList<String> tokens , Random random , int depth){
+		int choice = random.nextInt(10);
+		if(depth > 3 || choice < 4) {
+			tokens.add(random.nextBoolean() ? "id" : "num");
+		} else if(choice < 7) {
+			expression(tokens , random , depth + 1);
+			tokens.add(choice < 5 ? "+" : choice < 6 ? "-" : "*");
+			expression(tokens , random , depth + 1);
+		} else if(choice < 9) {
+			tokens.add("(");
+			expression(tokens , random , depth + 1);
+			tokens.add(")");
+		} else {
+			tokens.add("-");
+			expression(tokens , random , depth + 1);
+		}
+	}
+	
+	/**
+	 * write text to a new temporary file, deleted when the JVM exits
+	 * */
+	public static String writeTemp(String text) throws IOException{
+		File file = File.createTempFile("slr-bench", ".txt");
+		file.deleteOnExit();
+		PrintWriter out = new PrintWriter(file);
+		out.print(text);
+		out.close();
+		return file.getPath();
+	}
+	
+	public static String writeTemp(ArrayList<String> tokens) throws IOException{
+		StringBuilder text = new StringBuilder();
+		for(int i = 0 ; i < tokens.size() ; i++){
+			text.append(tokens.get(i)).append(i % 20 == 19 ? '\n' : ' ');
+		}
+		return writeTemp(text.toString());
+	}
+}
@@ -0,0 +1,59 @@
+package bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grammar.Grammar;
+import main.GrammarIO;
+
+/**
+ * class GrammarIOBenchmark
+ * Cost of reading grammar and input files
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrammarIOBenchmark {
+	
+	@Param({"10000"})
+	public int statements;
+	
+	private String grammarFile;
+	
+	private String inputFile;
+	
+	@Setup
+	public void setup() throws IOException{
+		this.grammarFile = GrammarFixtures.writeTemp(GrammarFixtures.large(200 , 40));
+		this.inputFile = GrammarFixtures.writeTemp(GrammarFixtures.sentence(this.statements , 42));
+	}
+	
+	/**
+	 * includes building the grammar, loadFromFile always does
+	 * */
+	@Benchmark
+	public Grammar loadFromFile() throws IOException{
+		return GrammarIO.loadFromFile(this.grammarFile);
+	}
+	
+	@Benchmark
+	public ArrayList<String> loadInputFromFile() throws IOException{
+		return GrammarIO.loadInputFromFile(this.inputFile);
+	}
+}
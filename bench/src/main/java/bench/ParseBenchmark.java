@@ -0,0 +1,116 @@
+package bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grammar.Grammar;
+import main.GrammarIO;
+import parser.GLRParser;
+import parser.ListTokenSource;
+import parser.ParseForest;
+import parser.ParseResult;
+import parser.ParseTable;
+import parser.ParseTree;
+import parser.ParseTreeBuilder;
+import parser.SLRParser;
+
+/**
+ * class ParseBenchmark
+ * Parse throughput of SLRParser on medium grammar. The tokens counter gives tokens per second
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+	
+	/**
+	 * class Tokens
+	 * counts tokens parsed, reported by JMH as a rate next to the benchmark score
+	 * */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Tokens {
+		public long tokens;
+		
+		@Setup(Level.Iteration)
+		public void reset(){
+			this.tokens = 0;
+		}
+	}
+	
+	@Param({"1000", "10000"})
+	public int statements;
+	
+	private ArrayList<String> input;
+	
+	private ParseTable table;
+	
+	private SLRParser parser;
+	
+	private SLRParser compressedParser;
+	
+	@Setup
+	public void setup() throws IOException{
+		Grammar grammar = GrammarIO.loadFromFile(GrammarFixtures.writeTemp(GrammarFixtures.medium()));
+		this.table = grammar.getParseTable();
+		this.parser = new SLRParser(this.table);
+		this.compressedParser = new SLRParser(grammar.getParseTable().compress());
+		this.input = GrammarFixtures.sentence(this.statements , 42);
+		if(! this.parser.recognize(this.input).accepted) throw new IllegalStateException("input is not accepted");
+	}
+	
+	@Benchmark
+	public ParseResult parse(Tokens counter){
+		counter.tokens += this.input.size();
+		return this.parser.parse(this.input);
+	}
+	
+	@Benchmark
+	public ParseTree buildTree(Tokens counter) throws IOException{
+		counter.tokens += this.input.size();
+		ParseTreeBuilder builder = new ParseTreeBuilder(this.table , this.input.size());
+		this.parser.parse(new ListTokenSource(this.input) , builder);
+		return builder.getTree();
+	}
+	
+	/**
+	 * GLR on a grammar without conflicts, against buildTree: the cost of its fast path
+	 * */
+	@Benchmark
+	public ParseForest glr(Tokens counter){
+		counter.tokens += this.input.size();
+		ParseForest forest = new ParseForest(this.table , this.input.size());
+		new GLRParser(this.table).parse(this.input , forest);
+		return forest;
+	}
+	
+	@Benchmark
+	public ParseResult recognize(Tokens counter){
+		counter.tokens += this.input.size();
+		return this.parser.recognize(this.input);
+	}
+	
+	@Benchmark
+	public ParseResult recognizeCompressed(Tokens counter){
+		counter.tokens += this.input.size();
+		return this.compressedParser.recognize(this.input);
+	}
+}
@@ -0,0 +1,74 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grammar.Grammar;
+import main.GrammarGenerator;
+import main.GrammarIO;
+import main.SentenceGenerator;
+import parser.ParseResult;
+import parser.SLRParser;
+
+/**
+ * class ScalingBenchmark
+ * Grammar construction time and parse time against size of grammar and input, on generated grammars 
+ * 	with three productions per non terminal
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalingBenchmark {
+	
+	@Param({"10", "100", "1000"})
+	public int nonTerminals;
+	
+	@Param({"10000", "100000"})
+	public int tokens;
+	
+	private ArrayList<String> lines;
+	
+	private ArrayList<String> input;
+	
+	private SLRParser parser;
+	
+	@Setup
+	public void setup(){
+		GrammarGenerator generator = new GrammarGenerator();
+		generator.nonTerminals = this.nonTerminals;
+		generator.productions = 3 * this.nonTerminals;
+		generator.terminals = 4 * this.nonTerminals;
+		generator.nullableRatio = 0.05;
+		this.lines = generator.generateSLR(1);
+		
+		Grammar grammar = GrammarIO.loadFromLines(this.lines);
+		this.parser = new SLRParser(grammar.getParseTable());
+		this.input = new SentenceGenerator(grammar).generate(this.tokens , new Random(1));
+	}
+	
+	@Benchmark
+	public Grammar construct(){
+		return GrammarIO.loadFromLines(this.lines);
+	}
+	
+	@Benchmark
+	public ParseResult recognize(){
+		return this.parser.recognize(this.input);
+	}
+}
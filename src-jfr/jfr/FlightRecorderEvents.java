@@ -0,0 +1,80 @@
+package jfr;
+
+import grammar.BuildListener;
+import grammar.Grammar;
+import parser.ParseListener;
+import parser.ParseResult;
+import parser.SLRParser;
+
+/**
+ * class FlightRecorderEvents
+ * Emits JFR events for grammar building phases and parses. Once registered, an event is only 
+ * 	created when a recording has it enabled, otherwise the listeners return null right away
+ * */
+public class FlightRecorderEvents implements BuildListener , ParseListener {
+	
+	/**
+	 * Start emitting events for every grammar built and every parse, in this JVM
+	 * */
+	public static void register(){
+		FlightRecorderEvents events = new FlightRecorderEvents();
+		Grammar.setBuildListener(events);
+		SLRParser.setParseListener(events);
+	}
+	
+	public static void unregister(){
+		Grammar.setBuildListener(null);
+		SLRParser.setParseListener(null);
+	}
+	
+	@Override
+	public Object phaseStarted(String phase){
+		GrammarPhaseEvent event = new GrammarPhaseEvent();
+		if(! event.isEnabled()) return null;
+		event.begin();
+		return event;
+	}
+	
+	@Override
+	public void phaseEnded(Object started , String phase , Grammar grammar){
+		GrammarPhaseEvent event = (GrammarPhaseEvent) started;
+		event.end();
+		if(! event.shouldCommit()) return;
+		event.phase = phase;
+		event.nonTerminals = grammar.getNonTerminals().length;
+		event.terminals = grammar.getTerminals().length;
+		event.productions = grammar.getProductions().length;
+		event.states = grammar.getStates().size();
+		event.commit();
+	}
+	
+	@Override
+	public Object parseStarted(){
+		ParseEvent event = new ParseEvent();
+		// error events are only made when a parse fails, but the parse must be watched for them
+		if(! event.isEnabled() && ! new ParseErrorEvent().isEnabled()) return null;
+		event.begin();
+		return event;
+	}
+	
+	@Override
+	public void parseEnded(Object started , ParseResult result , long tokens , long actions , int state){
+		ParseEvent event = (ParseEvent) started;
+		event.end();
+		if(event.shouldCommit()) {
+			event.tokens = tokens;
+			event.actions = actions;
+			event.accepted = result.accepted;
+			event.commit();
+		}
+		
+		if(! result.accepted) {
+			ParseErrorEvent error = new ParseErrorEvent();
+			if(! error.shouldCommit()) return;
+			error.errorOffset = result.errorOffset;
+			error.errorToken = result.errorToken;
+			error.state = state;
+			error.commit();
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * class GrammarPhaseEvent
+ * One phase of building a Grammar, with the size of the grammar after it
+ * */
+@Name("slrhelper.GrammarPhase")
+@Label("Grammar Phase")
+@Category({"SLR Helper", "Grammar"})
+@Description("One phase of building a grammar: NULLABLE, FIRST, FOLLOW, GOTO, SLR Table or Parse Table")
+public class GrammarPhaseEvent extends Event {
+	
+	@Label("Phase")
+	public String phase;
+	
+	@Label("Non Terminals")
+	public int nonTerminals;
+	
+	@Label("Terminals")
+	public int terminals;
+	
+	@Label("Productions")
+	public int productions;
+	
+	@Label("States")
+	public int states;
+}
@@ -0,0 +1,30 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * class ParseErrorEvent
+ * A parse which ended without accepting its input
+ * */
+@Name("slrhelper.ParseError")
+@Label("Parse Error")
+@Category({"SLR Helper", "Parser"})
+@Description("A parse which rejected its input")
+public class ParseErrorEvent extends Event {
+	
+	@Label("Error Offset")
+	@Description("Position (starting from 1) of the token at which the error was found")
+	public int errorOffset;
+	
+	@Label("Error Token")
+	@Description("Token at which the error was found, null if input ended too early")
+	public String errorToken;
+	
+	@Label("State")
+	@Description("State on top of stack when the error was found")
+	public int state;
+}
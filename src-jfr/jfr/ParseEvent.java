@@ -0,0 +1,29 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * class ParseEvent
+ * One parse by SLRParser
+ * */
+@Name("slrhelper.Parse")
+@Label("Parse")
+@Category({"SLR Helper", "Parser"})
+@Description("One input parsed by SLRParser")
+public class ParseEvent extends Event {
+	
+	@Label("Tokens")
+	@Description("Tokens shifted")
+	public long tokens;
+	
+	@Label("Actions")
+	@Description("Shifts and reduces taken")
+	public long actions;
+	
+	@Label("Accepted")
+	public boolean accepted;
+}
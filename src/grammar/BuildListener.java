@@ -0,0 +1,15 @@
+package grammar;
+
+/**
+ * interface BuildListener
+ * Told when each phase of building a Grammar starts and ends (see Grammar.PHASES)
+ * */
+public interface BuildListener {
+	
+	/**
+	 * Return anything to be given back to phaseEnded, or null if not interested in this phase
+	 * */
+	Object phaseStarted(String phase);
+	
+	void phaseEnded(Object started , String phase , Grammar grammar);
+}
@@ -16,6 +16,23 @@ public class ExtProduction extends Production {
 		this.hashPointer = hashPointer;
 	}
 	
+	public ExtProduction(Production production , int hashPointer){
+		super(production.head , production.body);
+		this.headId = production.headId;
+		this.bodyIds = production.bodyIds;
+		this.number = production.number;
+		this.itemBase = production.itemBase;
+		this.hashPointer = hashPointer;
+	}
+	
+	/**
+	 * function itemId
+	 * unique id of this item in the grammar
+	 * */
+	public int itemId(){
+		return this.itemBase + this.hashPointer;
+	}
+	
 	/**
 	 * function compareTo
 	 * compare this ExtProduction to other for equality ..
@@ -24,15 +41,13 @@ public class ExtProduction extends Production {
 		
 		if(this.hashPointer != another.hashPointer) return false;
 		
-		if(this.head.compareTo(another.head) != 0) return false;
+		if(this.headId != another.headId) return false;
 		
-		if(this.body.length != another.body.length) return false;
+		if(this.bodyIds.length != another.bodyIds.length) return false;
 		
 		// this system can fail in a case. but that case can never be the case
-		for(int i = 0 ; i < this.body.length ; i++){
-			String thisString = this.body[i];
-			String anotherString = another.body[i];
-			if(thisString.compareTo(anotherString) != 0) return false;
+		for(int i = 0 ; i < this.bodyIds.length ; i++){
+			if(this.bodyIds[i] != another.bodyIds[i]) return false;
 		}
 		
 		return true;
@@ -1,6 +1,7 @@
 package grammar;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -8,6 +9,7 @@ import java.util.Map;
 
 import parser.ACTION_TYPE;
 import parser.Action;
+import parser.ParseTable;
 
 
 /**
@@ -25,7 +27,7 @@ public class Grammar {
 	 * property terminals
 	 * List of terminal symbols
 	 * */
-	final private Terminal[] terminals;
+	private Terminal[] terminals;
 	
 	/**
 	 * property NULL_TERMINAL
@@ -33,35 +35,127 @@ public class Grammar {
 	 * */
 	final private Terminal NULL_TERMINAL;
 	
+	/**
+	 * property END_MARKER
+	 * terminal($) marking end of input, in FOLLOW SET of start symbol
+	 * */
+	final private Terminal END_MARKER;
+	
 	/**
 	 * String representation of start symbol for this grammar
 	 * */
 	private String startSymbol;
 	
 	/**
-	 * List of productions of grammar. i.e. E-> T + F etc
+	 * Symbol id of start symbol
 	 * */
-	private Production[] ruleList;
+	private int startId;
 	
 	/**
-	 * An index for mapping name of Non Terminals to their position in this.nonTerminals array
+	 * Ids of all the symbols of this grammar
 	 * */
-	private Map<String, Integer> nonTermIndex;
+	private SymbolTable symbolTable;
 	
 	/**
-	 * An index for mapping name of Terminals to their position in this.terminals array
+	 * List of productions of grammar. i.e. E-> T + F etc
 	 * */
-	private Map<String, Integer> termIndex;
+	private Production[] ruleList;
 	
 	/**
 	 * All the states in LR(0) automaton made from this grammar
 	 * */
 	private ArrayList<State> states;
 	
-	private HashSet<String> callStack;
+	/**
+	 * Index of states by their kernal, maps kernal key to state_no
+	 * */
+	private HashMap<KernelKey , Integer> stateIndex;
+	
+	/**
+	 * Numbers of productions of each non terminal, indexed by symbol id of head
+	 * */
+	private int[][] productionsByHead;
+	
+	/**
+	 * For each production, its item with # at position 0. Shared by all the closures
+	 * */
+	private ExtProduction[] initialItems;
+	
+	/**
+	 * Non kernal closure of each non terminal, indexed by symbol id. Calculated when first needed
+	 * */
+	private int[][] nonKernalClosures;
+	
+	/**
+	 * Order in which setGOTO visits symbols (terminals, then non terminals), and the way back from 
+	 * 	rank to symbol id
+	 * */
+	private int[] symbolRank;
+	private int[] rankedSymbols;
+	
+	/**
+	 * Work space for setGOTO: items of each symbol's transition, and ranks of symbols with a transition
+	 * */
+	private ArrayList<ArrayList<ExtProduction>> gotoBuckets;
+	private int[] touchedRanks;
+	
+	/**
+	 * Numbers of productions with each symbol in their body, once for each place, indexed by symbol id. 
+	 * 	Made by update
+	 * */
+	private int[][] occurrences;
+	
+	/**
+	 * SLR Table compiled to int arrays, created on first use
+	 * */
+	private ParseTable parseTable;
+	
+	/**
+	 * property lalr
+	 * true if reduces go on LALR(1) lookaheads (see setLALR), false if on FOLLOW SETs (SLR)
+	 * */
+	private final boolean lalr;
+	
+	/**
+	 * Phases of building a grammar, in the order they run. The parse table is compiled when first asked for
+	 * */
+	public static final String[] PHASES = {"NULLABLE" , "FIRST" , "FOLLOW" , "GOTO" , "LALR" , "SLR Table" , "Parse Table"};
+	public static final int NULLABLE_PHASE = 0;
+	public static final int FIRST_PHASE = 1;
+	public static final int FOLLOW_PHASE = 2;
+	public static final int GOTO_PHASE = 3;
+	public static final int LALR_PHASE = 4;		// only for a grammar built for LALR(1)
+	public static final int SLR_TABLE_PHASE = 5;
+	public static final int PARSE_TABLE_PHASE = 6;
+	
+	private static volatile BuildListener buildListener;
+	
+	/**
+	 * Time taken by each phase of building this grammar and counts of work done
+	 * */
+	private final GrammarMetrics metrics = new GrammarMetrics();
 	
 	public Grammar(NonTerminal[] nonTerminals , Terminal[] terminals , Production[] ruleList
 			, String startSymbol){
+		this(nonTerminals , terminals , ruleList , startSymbol , null);
+	}
+	
+	/**
+	 * Create a grammar whose symbols already have ids in symbolTable, and whose productions carry 
+	 * 	head and body ids. If symbolTable is null, ids are given here
+	 * */
+	public Grammar(NonTerminal[] nonTerminals , Terminal[] terminals , Production[] ruleList
+			, String startSymbol , SymbolTable symbolTable){
+		this(nonTerminals , terminals , ruleList , startSymbol , symbolTable , false);
+	}
+	
+	/**
+	 * Same as above, with the table built on LALR(1) lookaheads instead of FOLLOW SETs if lalr. 
+	 * 	States are the same LR(0) states either way, LALR(1) only has fewer conflicts
+	 * */
+	public Grammar(NonTerminal[] nonTerminals , Terminal[] terminals , Production[] ruleList
+			, String startSymbol , SymbolTable symbolTable , boolean lalr){
+		this.lalr = lalr;
 		this.nonTerminals = nonTerminals;
 		this.terminals = terminals;
 		this.ruleList = ruleList;
@@ -72,14 +166,27 @@ public class Grammar {
 		Terminal nterminal = new Terminal(null);
 		this.NULL_TERMINAL = nterminal;
 		
-		createIndices(nonTerminals , terminals);
+		if(symbolTable == null) {
+			symbolTable = new SymbolTable();
+			for(int i = 0 ; i < nonTerminals.length ; i++) symbolTable.add(nonTerminals[i]);
+			for(int i = 0 ; i < terminals.length ; i++) symbolTable.add(terminals[i]);
+			for(int i = 0 ; i < ruleList.length ; i++) symbolTable.setIds(ruleList[i]);
+		}
+		this.symbolTable = symbolTable;
+		this.startId = symbolTable.idOf(startSymbol);
+		
+		// $ may be used inside grammar as well, use the same terminal in that case
+		Symbol endMarker = symbolTable.get("$");
+		if(endMarker == null) endMarker = symbolTable.add(new Terminal("$"));
+		this.END_MARKER = (Terminal) endMarker;
 		
 		// calculate and set all the properties of this grammar
-		this.setNULLABLE();
-		this.setFIRST();
-		this.setFOLLOW();
-		this.setGOTO();
-		this.setSLR_TABLE();
+		this.runPhase(NULLABLE_PHASE);
+		this.runPhase(FIRST_PHASE);
+		this.runPhase(FOLLOW_PHASE);
+		this.runPhase(GOTO_PHASE);
+		if(this.lalr) this.runPhase(LALR_PHASE);
+		this.runPhase(SLR_TABLE_PHASE);
 	}
 	
 	public ArrayList<State> getStates(){
@@ -92,15 +199,101 @@ public class Grammar {
 	 * */
 	public ArrayList<State> getExtStates(){
 		
+		// copies, the states themselves keep their kernal for update
 		ArrayList<State> states = new ArrayList<State>();
-		states = this.states;
 		
-		for(State state:states){
-			state.kernalItems = CLOSURE(state.kernalItems);
+		for(State state:this.states){
+			State extState = new State();
+			extState.state_no = state.state_no;
+			extState.kernalItems = CLOSURE(state.kernalItems);
+			extState.GOTO_MAP = state.GOTO_MAP;
+			extState.SLR_TABLE = state.SLR_TABLE;
+			extState.CONFLICTS = state.CONFLICTS;
+			extState.LOOKAHEADS = state.LOOKAHEADS;
+			states.add(extState);
 		}
 		return states;
 	}
 	
+	/**
+	 * Get SLR Table of this grammar compiled for the parser
+	 * */
+	public synchronized ParseTable getParseTable(){
+		if(this.parseTable == null) this.runPhase(PARSE_TABLE_PHASE);
+		return this.parseTable;
+	}
+	
+	/**
+	 * Run one phase of building this grammar, timing it and telling build listener about it
+	 * */
+	private void runPhase(int phase){
+		BuildListener listener = buildListener;
+		Object event = listener != null ? listener.phaseStarted(PHASES[phase]) : null;
+		long start = System.nanoTime();
+		
+		switch(phase){
+		case NULLABLE_PHASE: this.setNULLABLE(null); break;
+		case FIRST_PHASE: this.setFIRST(null); break;
+		case FOLLOW_PHASE: this.setFOLLOW(null); break;
+		case GOTO_PHASE: this.setGOTO(); break;
+		case LALR_PHASE: this.setLALR(); break;
+		case SLR_TABLE_PHASE: this.setSLR_TABLE(); break;
+		default: this.parseTable = ParseTable.compile(this);
+		}
+		
+		this.metrics.setPhaseNanos(phase , System.nanoTime() - start);
+		if(event != null) listener.phaseEnded(event , PHASES[phase] , this);
+	}
+	
+	/**
+	 * Told about every phase of building any grammar, e.g. to record it. null for none
+	 * */
+	public static void setBuildListener(BuildListener listener){
+		buildListener = listener;
+	}
+	
+	/**
+	 * All productions of this grammar, including the one added for new start symbol. 
+	 * Position of each production is its number
+	 * */
+	public Production[] getProductions(){
+		return this.ruleList;
+	}
+	
+	public SymbolTable getSymbolTable(){
+		return this.symbolTable;
+	}
+	
+	/**
+	 * Production added for new start symbol, S' -> S
+	 * */
+	public Production getStartProduction(){
+		return this.ruleList[this.ruleList.length - 1];
+	}
+	
+	public Terminal getEndMarker(){
+		return this.END_MARKER;
+	}
+	
+	/**
+	 * Number of SLR Table entries found with two different actions (shift/reduce or reduce/reduce). 
+	 * The grammar is SLR(1) only if this is zero
+	 * */
+	public int getConflictCount(){
+		return (int) this.metrics.conflicts;
+	}
+	
+	/**
+	 * true if the table of this grammar is LALR(1), false if SLR(1)
+	 * */
+	public boolean isLALR(){
+		return this.lalr;
+	}
+	
+	public GrammarMetrics getMetrics(){
+		return this.metrics;
+	}
+	
 	public Terminal[] getTerminals(){
 		return this.terminals;
 	}
@@ -109,66 +302,576 @@ public class Grammar {
 		return this.nonTerminals;
 	}
 	
+	/**
+	 * function update
+	 * Add productions to this grammar and remove others (matched by head and body), without building it again:
+	 * 	NULLABLE, FIRST and FOLLOW are calculated again only for the non terminals a changed production can 
+	 * 	reach. Only states whose closure holds a changed production get their transitions again, the states 
+	 * 	they go to are looked up by kernal as usual, so the untouched ones are reused. Lines of SLR Table are 
+	 * 	made again only for those states and for states reducing a non terminal whose FOLLOW changed (in LALR(1) 
+	 * 	mode lookaheads are calculated again, and lines whose lookaheads changed are made again). 
+	 * 	States no longer reachable are dropped and the others numbered again in order, new states come after 
+	 * 	the old ones. So state numbers, and which of the actions of a conflict is the one in SLR_TABLE (all of 
+	 * 	them are in CONFLICTS), can differ from those of the same grammar built from scratch
+	 * A new name in an added production is a non terminal if it is the head of one, a terminal if not. 
+	 * 	Throws IllegalArgumentException, with the grammar left as it was, if a production to remove is not in 
+	 * 	the grammar, if an added head is a terminal, or if a non terminal still used is left without productions
+	 * Production objects are never changed: the grammar takes copies of added ones and of those it keeps, so 
+	 * 	productions given to it, or got from it (or from a ParseTable) before, keep their numbers
+	 * */
+	public synchronized void update(List<Production> added , List<Production> removed){
+		long started = System.nanoTime();
+		added = copiesOf(added);
+		
+		// the one added for start symbol is last and not matched
+		int oldRuleCount = this.ruleList.length;
+		BitSet removedNumbers = new BitSet(oldRuleCount);
+		for(Production production : removed){
+			int number = -1;
+			for(int q = 0 ; q < oldRuleCount - 1 && number < 0 ; q++){
+				Production candidate = this.ruleList[q];
+				if(! removedNumbers.get(q) && candidate.head.equals(production.head) && Arrays.equals(candidate.body, production.body)) number = q;
+			}
+			if(number < 0) throw new IllegalArgumentException("No production " + production + "in grammar");
+			removedNumbers.set(number);
+		}
+		this.checkUpdate(added , removedNumbers);
+		
+		int oldSymbolCount = this.symbolTable.size();
+		this.addSymbols(added);
+		int symbolCount = this.symbolTable.size();
+		
+		// values before the update, to find what changed
+		boolean[] wasNullable = new boolean[symbolCount];
+		BitSet[] oldFirst = new BitSet[symbolCount];
+		BitSet[] oldFollow = new BitSet[symbolCount];
+		for(int id = 0 ; id < oldSymbolCount ; id++){
+			NonTerminal var = this.getNonTerminal(id);
+			if(var == null) continue;
+			wasNullable[id] = var.isNullable;
+			oldFirst[id] = var.FIRST_BITS;
+			oldFollow[id] = var.FOLLOW_BITS;
+		}
+		
+		BitSet changedHeads = new BitSet(symbolCount);
+		BitSet changedBodies = new BitSet(symbolCount);
+		for(Production production : added){
+			changedHeads.set(production.headId);
+			for(int id : production.bodyIds) changedBodies.set(id);
+		}
+		for(int q = removedNumbers.nextSetBit(0) ; q >= 0 ; q = removedNumbers.nextSetBit(q + 1)){
+			changedHeads.set(this.ruleList[q].headId);
+			for(int id : this.ruleList[q].bodyIds) changedBodies.set(id);
+		}
+		
+		int[] renumber = this.replaceProductions(added , removedNumbers);
+		this.indexOccurrences();
+		
+		// NULLABLE and FIRST of non terminals a changed head can reach the start of, FOLLOW of those a change can get to
+		BitSet firstAffected = this.firstAffected(changedHeads , wasNullable);
+		this.setNULLABLE(firstAffected);
+		this.setFIRST(firstAffected);
+		BitSet firstChanged = new BitSet(symbolCount);
+		for(int id = firstAffected.nextSetBit(0) ; id >= 0 ; id = firstAffected.nextSetBit(id + 1)){
+			NonTerminal var = this.getNonTerminal(id);
+			if(var.isNullable != wasNullable[id] || ! var.FIRST_BITS.equals(oldFirst[id])) firstChanged.set(id);
+		}
+		BitSet followAffected = this.followAffected(changedHeads , changedBodies , firstChanged , wasNullable);
+		this.setFOLLOW(followAffected);
+		BitSet followChanged = new BitSet(symbolCount);
+		for(int id = followAffected.nextSetBit(0) ; id >= 0 ; id = followAffected.nextSetBit(id + 1)){
+			if(! this.getNonTerminal(id).FOLLOW_BITS.equals(oldFollow[id])) followChanged.set(id);
+		}
+		
+		// states whose closure changed: a kernal item has # before a non terminal whose closure has a changed head. 
+		// States with an item of a removed production can't be reached any more
+		BitSet closureChanged = this.closureAffected(changedHeads);
+		int oldStateCount = this.states.size();
+		BitSet remake = new BitSet(oldStateCount);
+		BitSet stale = new BitSet(oldStateCount);
+		this.stateIndex = new HashMap<KernelKey , Integer>();
+		for(State state : this.states){
+			for(ExtProduction item : state.kernalItems){
+				if(item.number < 0) stale.set(state.state_no);
+				else if(item.hashPointer < item.bodyIds.length && closureChanged.get(item.bodyIds[item.hashPointer])) remake.set(state.state_no);
+			}
+			if(! stale.get(state.state_no)) this.stateIndex.put(state.getKernelKey(), state.state_no);
+		}
+		boolean lostTarget = false;
+		for(int i = remake.nextSetBit(0) ; i >= 0 ; i = remake.nextSetBit(i + 1)){
+			if(stale.get(i)) continue;
+			State state = this.states.get(i);
+			Map<String , Integer> oldGoto = state.GOTO_MAP;
+			state.GOTO_MAP = new HashMap<String , Integer>();
+			this.setGOTO(state);
+			if(! lostTarget && ! new HashSet<Integer>(state.GOTO_MAP.values()).containsAll(oldGoto.values())) lostTarget = true;
+		}
+		for(int i = oldStateCount ; i < this.states.size() ; i++){
+			this.setGOTO(this.states.get(i));
+			remake.set(i);
+		}
+		this.metrics.updatedStates = remake.cardinality();
+		
+		// a line is made again if its state is, or if it reduces a non terminal whose FOLLOW changed
+		for(int i = 0 ; i < oldStateCount && ! this.lalr ; i++){
+			int[] heads = this.states.get(i).reduceHeads;
+			for(int k = 0 ; heads != null && k < heads.length && ! remake.get(i) ; k++){
+				if(followChanged.get(heads[k])) remake.set(i);
+			}
+		}
+		
+		// only a removed production, or a state which no longer goes to one it did, can leave states unreachable
+		ArrayList<State> before = new ArrayList<State>(this.states);
+		int[] newNumber;
+		if(stale.isEmpty() && ! lostTarget) {
+			newNumber = new int[before.size()];
+			for(int i = 0 ; i < newNumber.length ; i++) newNumber[i] = i;
+		} else {
+			newNumber = this.dropUnreachableStates();
+		}
+		
+		ArrayList<Map<Integer , BitSet>> oldLookaheads = new ArrayList<Map<Integer , BitSet>>();
+		for(State state : before) oldLookaheads.add(state.LOOKAHEADS);
+		if(this.lalr) this.setLALR();
+		
+		this.metrics.updatedRows = 0;
+		for(int i = 0 ; i < before.size() ; i++){
+			State state = before.get(i);
+			if(newNumber[i] < 0) {
+				this.forgetRow(state);
+				continue;
+			}
+			if(remake.get(i) || state.SLR_TABLE == null 
+					|| (this.lalr && ! sameLookaheads(oldLookaheads.get(i) , state.LOOKAHEADS , renumber))) {
+				this.forgetRow(state);
+				this.setSLR_ROW(state);
+				this.metrics.updatedRows++;
+			} else if(newNumber.length != this.states.size()) {
+				renumberRow(state);
+			}
+		}
+		
+		this.parseTable = null;
+		this.metrics.updatedNonTerminals = firstAffected.cardinality() + followAffected.cardinality();
+		this.metrics.updates++;
+		this.metrics.updateNanos = System.nanoTime() - started;
+	}
+	
+	/**
+	 * Throw IllegalArgumentException if added makes a terminal a head, or if a non terminal used after the update 
+	 * 	has no productions left
+	 * */
+	private void checkUpdate(List<Production> added , BitSet removedNumbers){
+		HashSet<String> addedHeads = new HashSet<String>();
+		for(Production production : added){
+			if(this.symbolTable.get(production.head) instanceof Terminal) {
+				throw new IllegalArgumentException(production.head + " is a terminal, it can't be head of " + production);
+			}
+			addedHeads.add(production.head);
+		}
+		
+		int[] left = new int[this.symbolTable.size()];
+		for(int q = 0 ; q < this.ruleList.length ; q++){
+			if(! removedNumbers.get(q)) left[this.ruleList[q].headId]++;
+		}
+		ArrayList<Production> kept = new ArrayList<Production>(added);
+		for(int q = 0 ; q < this.ruleList.length ; q++){
+			if(! removedNumbers.get(q)) kept.add(this.ruleList[q]);
+		}
+		for(Production production : kept){
+			for(String name : production.body){
+				Symbol symbol = this.symbolTable.get(name);
+				if(symbol instanceof NonTerminal && left[symbol.id] == 0 && ! addedHeads.contains(name)) {
+					throw new IllegalArgumentException(name + " is used in " + production + " but has no productions");
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Give ids to names new to this grammar in added productions, and to the productions. A head is a non terminal
+	 * */
+	private void addSymbols(List<Production> added){
+		ArrayList<NonTerminal> nonTerminalList = new ArrayList<NonTerminal>(Arrays.asList(this.nonTerminals));
+		ArrayList<Terminal> terminalList = new ArrayList<Terminal>(Arrays.asList(this.terminals));
+		
+		for(Production production : added){
+			if(this.symbolTable.get(production.head) != null) continue;
+			NonTerminal nonTerminal = new NonTerminal(production.head);
+			this.symbolTable.add(nonTerminal);
+			nonTerminalList.add(nonTerminal);
+		}
+		for(Production production : added){
+			for(String name : production.body){
+				if(this.symbolTable.get(name) != null) continue;
+				Terminal terminal = new Terminal(name);
+				this.symbolTable.add(terminal);
+				terminalList.add(terminal);
+			}
+			this.symbolTable.setIds(production);
+		}
+		
+		this.nonTerminals = nonTerminalList.toArray(new NonTerminal[nonTerminalList.size()]);
+		this.terminals = terminalList.toArray(new Terminal[terminalList.size()]);
+	}
+	
+	/**
+	 * Make rule list without removedNumbers and with added (before the one for start symbol, which stays last), 
+	 * 	of new productions, and number it. Items made already get the new numbers of their productions, or -1 if removed. 
+	 * 	Returns new number of each old production, -1 if removed
+	 * */
+	private int[] replaceProductions(List<Production> added , BitSet removedNumbers){
+		int oldRuleCount = this.ruleList.length;
+		Production[] rules = new Production[oldRuleCount - removedNumbers.cardinality() + added.size()];
+		int[] renumber = new int[oldRuleCount];
+		int k = 0;
+		for(int q = 0 ; q < oldRuleCount - 1 ; q++){
+			if(removedNumbers.get(q)) {
+				renumber[q] = -1;
+				continue;
+			}
+			renumber[q] = k;
+			rules[k++] = copyOf(this.ruleList[q]);
+		}
+		for(Production production : added) rules[k++] = production;
+		renumber[oldRuleCount - 1] = k;
+		rules[k] = copyOf(this.ruleList[oldRuleCount - 1]);
+		
+		ExtProduction[] oldInitialItems = this.initialItems;
+		int[] oldItemBase = new int[oldRuleCount];
+		for(int q = 0 ; q < oldRuleCount ; q++) oldItemBase[q] = this.ruleList[q].itemBase;
+		this.ruleList = rules;
+		this.numberProductions();
+		this.indexProductions();		// closures of non terminals hold old numbers, they are made again when needed
+		this.rankSymbols();
+		
+		// items are copies of their production. Initial items are shared by closures (and lines of SLR Table 
+		// reduce by them), kernal items belong to their state
+		for(int q = 0 ; q < oldRuleCount ; q++){
+			if(renumber[q] < 0) continue;
+			this.renumberItem(oldInitialItems[q] , renumber);
+			this.initialItems[renumber[q]] = oldInitialItems[q];
+		}
+		for(State state : this.states){
+			for(ExtProduction item : state.kernalItems){
+				int old = item.number;
+				this.renumberItem(item , renumber);
+				if(item.number < 0 || item.itemBase != oldItemBase[old]) state.kernelKey = null;	// its item ids moved
+			}
+		}
+		return renumber;
+	}
+	
+	private static ArrayList<Production> copiesOf(List<Production> productions){
+		ArrayList<Production> copies = new ArrayList<Production>(productions.size());
+		for(Production production : productions) copies.add(copyOf(production));
+		return copies;
+	}
+	
+	/**
+	 * Production with head, body and their ids of production, not numbered yet
+	 * */
+	private static Production copyOf(Production production){
+		Production copy = new Production(production.head , production.body);
+		copy.headId = production.headId;
+		copy.bodyIds = production.bodyIds;
+		return copy;
+	}
+	
+	private void renumberItem(ExtProduction item , int[] renumber){
+		item.number = renumber[item.number];
+		if(item.number >= 0) item.itemBase = this.ruleList[item.number].itemBase;
+	}
+	
+	/**
+	 * Set occurrences from rule list
+	 * */
+	private void indexOccurrences(){
+		int[] count = new int[this.symbolTable.size()];
+		for(int q = 0 ; q < this.ruleList.length ; q++){
+			for(int id : this.ruleList[q].bodyIds) count[id]++;
+		}
+		this.occurrences = new int[count.length][];
+		for(int id = 0 ; id < count.length ; id++) this.occurrences[id] = new int[count[id]];
+		Arrays.fill(count, 0);
+		for(int q = 0 ; q < this.ruleList.length ; q++){
+			for(int id : this.ruleList[q].bodyIds) this.occurrences[id][count[id]++] = q;
+		}
+	}
+	
+	/**
+	 * Non terminals whose NULLABLE or FIRST may change: changed heads, and heads of productions where one of 
+	 * 	them can come first (after symbols which are nullable, or may become nullable)
+	 * */
+	private BitSet firstAffected(BitSet changedHeads , boolean[] wasNullable){
+		BitSet affected = (BitSet) changedHeads.clone();
+		int[] worklist = new int[this.symbolTable.size()];
+		int size = 0;
+		for(int id = affected.nextSetBit(0) ; id >= 0 ; id = affected.nextSetBit(id + 1)) worklist[size++] = id;
+		
+		while(size > 0){
+			int id = worklist[--size];
+			for(int q : this.occurrences[id]){
+				int head = this.ruleList[q].headId;
+				if(affected.get(head)) continue;
+				int[] body = this.ruleList[q].bodyIds;
+				for(int i = 0 ; i < body.length ; i++){
+					if(affected.get(body[i])) {
+						affected.set(head);
+						worklist[size++] = head;
+						break;
+					}
+					if(! wasNullable[body[i]]) break;
+				}
+			}
+		}
+		return affected;
+	}
+	
+	/**
+	 * Non terminals whose FOLLOW may change: those in changed productions, those followed by one whose FIRST 
+	 * 	or NULLABLE changed, and those at the end of a production of one of these
+	 * */
+	private BitSet followAffected(BitSet changedHeads , BitSet changedBodies , BitSet firstChanged , boolean[] wasNullable){
+		BitSet affected = new BitSet(this.symbolTable.size());
+		affected.or(changedHeads);
+		for(int id = changedBodies.nextSetBit(0) ; id >= 0 ; id = changedBodies.nextSetBit(id + 1)){
+			if(this.getNonTerminal(id) != null) affected.set(id);
+		}
+		for(int id = firstChanged.nextSetBit(0) ; id >= 0 ; id = firstChanged.nextSetBit(id + 1)){
+			for(int q : this.occurrences[id]){
+				int[] body = this.ruleList[q].bodyIds;
+				for(int i = 0 ; i < body.length ; i++){
+					if(body[i] != id) continue;
+					for(int j = i - 1 ; j >= 0 ; j--){
+						if(this.getNonTerminal(body[j]) != null) affected.set(body[j]);
+						if(! wasNullable[body[j]] && ! this.isNullable(body[j])) break;
+					}
+				}
+			}
+		}
+		
+		int[] worklist = new int[this.symbolTable.size()];
+		int size = 0;
+		for(int id = affected.nextSetBit(0) ; id >= 0 ; id = affected.nextSetBit(id + 1)) worklist[size++] = id;
+		while(size > 0){
+			int head = worklist[--size];
+			for(int q : this.productionsByHead[head]){
+				int[] body = this.ruleList[q].bodyIds;
+				for(int i = body.length - 1 ; i >= 0 ; i--){
+					if(this.getNonTerminal(body[i]) != null && ! affected.get(body[i])) {
+						affected.set(body[i]);
+						worklist[size++] = body[i];
+					}
+					if(! wasNullable[body[i]] && ! this.isNullable(body[i])) break;
+				}
+			}
+		}
+		return affected;
+	}
+	
+	/**
+	 * Non terminals whose non kernal closure has a production of a changed head: changed heads, and heads of 
+	 * 	productions starting with one of these
+	 * */
+	private BitSet closureAffected(BitSet changedHeads){
+		BitSet affected = (BitSet) changedHeads.clone();
+		int[] worklist = new int[this.symbolTable.size()];
+		int size = 0;
+		for(int id = affected.nextSetBit(0) ; id >= 0 ; id = affected.nextSetBit(id + 1)) worklist[size++] = id;
+		while(size > 0){
+			int id = worklist[--size];
+			for(int q : this.occurrences[id]){
+				int head = this.ruleList[q].headId;
+				if(this.ruleList[q].bodyIds[0] != id || affected.get(head)) continue;
+				affected.set(head);
+				worklist[size++] = head;
+			}
+		}
+		return affected;
+	}
+	
+	/**
+	 * Remove states which can't be reached from state 0, and number the others again in the same order. 
+	 * 	Returns new number of each state, -1 if removed
+	 * */
+	private int[] dropUnreachableStates(){
+		int count = this.states.size();
+		BitSet reached = new BitSet(count);
+		int[] queue = new int[count];
+		int size = 0;
+		reached.set(0);
+		queue[size++] = 0;
+		for(int i = 0 ; i < size ; i++){
+			for(Integer target : this.states.get(queue[i]).GOTO_MAP.values()){
+				if(reached.get(target)) continue;
+				reached.set(target);
+				queue[size++] = target;
+			}
+		}
+		
+		int[] newNumber = new int[count];
+		int next = 0;
+		for(int i = 0 ; i < count ; i++) newNumber[i] = reached.get(i) ? next++ : -1;
+		if(next == count) return newNumber;
+		
+		ArrayList<State> kept = new ArrayList<State>(next);
+		this.stateIndex = new HashMap<KernelKey , Integer>();
+		for(int i = 0 ; i < count ; i++){
+			if(newNumber[i] < 0) continue;
+			State state = this.states.get(i);
+			state.state_no = newNumber[i];
+			for(Map.Entry<String , Integer> pair : state.GOTO_MAP.entrySet()) pair.setValue(newNumber[pair.getValue()]);
+			kept.add(state);
+			this.stateIndex.put(state.getKernelKey(), state.state_no);
+		}
+		this.states = kept;
+		return newNumber;
+	}
+	
+	/**
+	 * Take the line of SLR Table of state out of table entries and conflicts counted
+	 * */
+	private void forgetRow(State state){
+		if(state.SLR_TABLE == null) return;
+		this.metrics.tableEntries -= state.SLR_TABLE.size();
+		this.metrics.conflicts -= state.conflictCount;
+	}
+	
+	/**
+	 * Give SHIFT and GOTO actions of a line of SLR Table kept by an update the new numbers of their states, 
+	 * 	which are in GOTO_MAP of the state already
+	 * */
+	private static void renumberRow(State state){
+		for(Map.Entry<String , Integer> pair : state.GOTO_MAP.entrySet()){
+			Action action = state.SLR_TABLE.get(pair.getKey());
+			if(action.type == ACTION_TYPE.SHIFT || action.type == ACTION_TYPE.GOTO) action.state_no = pair.getValue();
+			
+			// a shift which lost its place in the line to a reduce is kept in CONFLICTS
+			ArrayList<Action> conflicting = state.CONFLICTS.get(pair.getKey());
+			for(int i = 0 ; conflicting != null && i < conflicting.size() ; i++){
+				if(conflicting.get(i).type == ACTION_TYPE.SHIFT) conflicting.get(i).state_no = pair.getValue();
+			}
+		}
+	}
+	
+	/**
+	 * true if LALR(1) lookaheads before an update (keyed by old production numbers) are the same as now
+	 * */
+	private static boolean sameLookaheads(Map<Integer , BitSet> before , Map<Integer , BitSet> now , int[] renumber){
+		if(before == null || before.size() != now.size()) return false;
+		for(Map.Entry<Integer , BitSet> pair : before.entrySet()){
+			int number = renumber[pair.getKey()];
+			if(number < 0 || ! pair.getValue().equals(now.get(number))) return false;
+		}
+		return true;
+	}
+	
 	/**
 	 * Calculates SLR Table for this grammar
-	 * Follow Sets of all the Non Terminals should be set before calling this method
+	 * Follow Sets of all the Non Terminals should be set before calling this method. If LOOKAHEADS of 
+	 * 	states are set (LALR), reduces go on those instead, and the table is the LALR(1) table
 	 * */
 	private void setSLR_TABLE(){
 		for (State state : this.states){ // for each state
+			this.setSLR_ROW(state);
+		}
+	}
 			
-			state.SLR_TABLE = new HashMap<String , Action>();
+	/**
+	 * Calculate the line of SLR Table of one state
+	 * */
+	private void setSLR_ROW(State state){
 			
-			/**
-			 * if this state(A) goes to state(B) on terminal a: Add SHIFT (a , B) to SLR Table(line) of state A
-			 * if this state(A) goes to state(B) on non terminal a: Add GOTO (a , B) to SLR Table(line) of state A 
-			 * */
-			for(Map.Entry<String,Integer> pair : state.GOTO_MAP.entrySet()){
-				String symbol = pair.getKey();
-				Integer state_no = pair.getValue();
+		state.SLR_TABLE = new HashMap<String , Action>();
+		state.CONFLICTS = new HashMap<String , ArrayList<Action>>();
+		state.conflictCount = 0;
 
-				NonTerminal matchedNTerminal = this.getNonTerminalByName(symbol);				
-				if(matchedNTerminal != null) {
-					Action action = new Action(ACTION_TYPE.GOTO);
-					action.state_no = state_no;
-					state.SLR_TABLE.put(symbol, action);
-				} else {	// its a terminal
-					Action action = new Action(ACTION_TYPE.SHIFT);
-					action.state_no = state_no;
-					state.SLR_TABLE.put(symbol, action);
-				}
+		/**
+		 * if this state(A) goes to state(B) on terminal a: Add SHIFT (a , B) to SLR Table(line) of state A
+		 * if this state(A) goes to state(B) on non terminal a: Add GOTO (a , B) to SLR Table(line) of state A 
+		 * */
+		for(Map.Entry<String,Integer> pair : state.GOTO_MAP.entrySet()){
+			String symbol = pair.getKey();
+			Integer state_no = pair.getValue();
+			
+			NonTerminal matchedNTerminal = this.getNonTerminal(this.symbolTable.idOf(symbol));
+			if(matchedNTerminal != null) {
+				Action action = new Action(ACTION_TYPE.GOTO);
+				action.state_no = state_no;
+				state.SLR_TABLE.put(symbol, action);
+			} else {	// its a terminal
+				Action action = new Action(ACTION_TYPE.SHIFT);
+				action.state_no = state_no;
+				state.SLR_TABLE.put(symbol, action);
 			}
+		}
+		
+		/**
+		 * If # is at the end of any production(P) in this state, find head(H) of that production
+		 * 		if H is start symbol, Add ACCEPT($) to SLR table
+		 * 		else for each terminal (a) which is in follow of non terminal H (or lookahead of P here), add REDUCE (P) to SLR Table
+		 * */
+		ExtProduction[] allItems = this.CLOSURE(state.kernalItems);
+		this.metrics.closures++;
+		this.metrics.closureItems += allItems.length;
+		int[] reduceHeads = new int[allItems.length];
+		int reduceCount = 0;
+		for (int i = 0 ; i < allItems.length ; i++){
+			ExtProduction production = allItems[i];
 			
-			/**
-			 * If # is at the end of any production(P) in this state, find head(H) of that production
-			 * 		if H is start symbol, Add ACCEPT($) to SLR table
-			 * 		else for each terminal (a) which is in follow of non terminal H, add REDUCE (P) to SLR Table
-			 * */
-			ExtProduction[] allItems = this.CLOSURE(state.kernalItems);
-			for (int i = 0 ; i < allItems.length ; i++){
-				ExtProduction production = allItems[i];
+			// if # is at the end of body
+			if(production.bodyIds.length == production.hashPointer){
+				reduceHeads[reduceCount++] = production.headId;
 				
-				// if # is at the end of body
-				if(production.body.length == production.hashPointer){
-					String headSymbol = production.head;
-					
-					if(headSymbol == this.startSymbol){
-						Action action = new Action(ACTION_TYPE.ACCEPT);
-						state.SLR_TABLE.put("$", action);
-						continue;
-					}
-					
-					NonTerminal matchedNTerminal = this.getNonTerminalByName(headSymbol);
-					if(matchedNTerminal != null){
-						for (int j = 0 ; j < matchedNTerminal.FOLLOW_SET.length ; j++){
-							Terminal terminal = matchedNTerminal.FOLLOW_SET[j];
-							Action action = new Action(ACTION_TYPE.REDUCE);
-							action.reduceProduction = production;
-							state.SLR_TABLE.put(terminal.name, action);
-						}
+				if(production.headId == this.startId){
+					Action action = new Action(ACTION_TYPE.ACCEPT);
+					this.countConflict(state , END_MARKER.name , state.SLR_TABLE.put(END_MARKER.name, action) , action);
+					continue;
+				}
+			
+				NonTerminal matchedNTerminal = this.getNonTerminal(production.headId);
+				if(matchedNTerminal != null){
+					BitSet lookaheads = state.LOOKAHEADS != null ? state.LOOKAHEADS.get(production.number) 
+							: matchedNTerminal.FOLLOW_BITS;
+					if(lookaheads == null) continue;		// no lookahead reaches it
+					for (int id = lookaheads.nextSetBit(0) ; id >= 0 ; id = lookaheads.nextSetBit(id + 1)){
+						Terminal terminal = this.getTerminal(id);
+						Action action = new Action(ACTION_TYPE.REDUCE);
+						action.reduceProduction = production;
+						this.countConflict(state , terminal.name , state.SLR_TABLE.put(terminal.name, action) , action);
 					}
 				}
 			}
 		}
+		state.reduceHeads = Arrays.copyOf(reduceHeads, reduceCount);
+		this.metrics.tableEntries += state.SLR_TABLE.size();
+	}
+	
+	/**
+	 * Count a conflict if an entry of SLR Table held a different action before action replaced it, 
+	 * 	and keep both in CONFLICTS of state (for GLRParser)
+	 * */
+	private void countConflict(State state , String symbol , Action previous , Action action){
+		if(previous == null) return;
+		if(sameAction(previous , action)) return;
+		this.metrics.conflicts++;
+		state.conflictCount++;
+		
+		ArrayList<Action> actions = state.CONFLICTS.get(symbol);
+		if(actions == null) {
+			actions = new ArrayList<Action>();
+			actions.add(previous);
+			state.CONFLICTS.put(symbol, actions);
+		}
+		for(int i = 0 ; i < actions.size() ; i++){
+			if(sameAction(actions.get(i) , action)) return;
+		}
+		actions.add(action);
+	}
+	
+	private static boolean sameAction(Action a , Action b){
+		return a.type == b.type && a.state_no == b.state_no && a.reduceProduction == b.reduceProduction;
 	}
 	
 	/**
@@ -180,15 +883,22 @@ public class Grammar {
 		 
 		Production newProduction =  addNewDummyProduction();
 		
+		numberProductions();
+		indexProductions();
+		rankSymbols();
+		this.stateIndex = new HashMap<KernelKey , Integer>();
+		
 		// Add state zero 
 		State state = new State();
-		ExtProduction firstStatePro = new ExtProduction(newProduction.head , newProduction.body , 0);
+		ExtProduction firstStatePro = new ExtProduction(newProduction , 0);
 		ExtProduction[] firstItemKer = new ExtProduction[1];
 		firstItemKer[0] = firstStatePro;
 		state.kernalItems = firstItemKer;
 		state.state_no = 0;
 		
 		this.states.add(state);
+		this.stateIndex.put(state.getKernelKey(), state.state_no);
+		this.metrics.statesCreated++;
 		
 		// for each state find its behavior for each symbol, add a new state if it wants to GOTO a state that doesn't exist
 		for(int i = 0 ; i< this.states.size() ; i++){
@@ -196,19 +906,311 @@ public class Grammar {
 		}
 	}
 	
+	/**
+	 * Calculate LALR(1) lookaheads of every reduce over the LR(0) states, as DeRemer and Pennello do. 
+	 * 	For each transition (p,A) of a state p on a non terminal A:
+	 * 		Read(p,A) is the terminals shifted by goto(p,A), plus Read(goto(p,A),C) for each nullable C it goes on (reads)
+	 * 		Follow(p,A) is Read(p,A) plus Follow(p',B) for each B :: x A y with y nullable and p' going to p on x (includes)
+	 * 	A reduce of A :: w in state q gets Follow(p,A) of each p going to q on w (lookback). Both unions are done 
+	 * 	by digraph, so the work is about linear in the number of transitions and relations
+	 * */
+	private void setLALR(){
+		int symbolCount = this.symbolTable.size();
+		int stateCount = this.states.size();
+		
+		// symbols each state goes on (sorted) and the states it goes to, and the number of each non terminal 
+		// transition, -1 for a terminal. Edge k of state q is edge edgeBase[q] + k of the automaton
+		int[][] symbolsOf = new int[stateCount][];
+		int[][] targetsOf = new int[stateCount][];
+		int[] edgeBase = new int[stateCount];
+		int edgeCount = 0;
+		for(int q = 0 ; q < stateCount ; q++){
+			State state = this.states.get(q);
+			long[] pairs = new long[state.GOTO_MAP.size()];
+			int k = 0;
+			for(Map.Entry<String , Integer> pair : state.GOTO_MAP.entrySet()){
+				pairs[k++] = (long) this.symbolTable.idOf(pair.getKey()) << 32 | pair.getValue();
+			}
+			Arrays.sort(pairs);
+			symbolsOf[q] = new int[k];
+			targetsOf[q] = new int[k];
+			for(int i = 0 ; i < k ; i++){
+				symbolsOf[q][i] = (int) (pairs[i] >>> 32);
+				targetsOf[q][i] = (int) pairs[i];
+			}
+			edgeBase[q] = edgeCount;
+			edgeCount += k;
+		}
+		
+		int[] transitionOf = new int[edgeCount];
+		int transitions = 0;
+		for(int q = 0 ; q < stateCount ; q++){
+			for(int k = 0 ; k < symbolsOf[q].length ; k++){
+				transitionOf[edgeBase[q] + k] = this.getNonTerminal(symbolsOf[q][k]) != null ? transitions++ : -1;
+			}
+		}
+		int[] fromState = new int[transitions];
+		int[] onSymbol = new int[transitions];
+		int[] toState = new int[transitions];
+		for(int q = 0 ; q < stateCount ; q++){
+			for(int k = 0 ; k < symbolsOf[q].length ; k++){
+				int t = transitionOf[edgeBase[q] + k];
+				if(t < 0) continue;
+				fromState[t] = q;
+				onSymbol[t] = symbolsOf[q][k];
+				toState[t] = targetsOf[q][k];
+			}
+		}
+		
+		// direct reads and reads. Start symbol is followed by $, which is never shifted
+		int originalStart = this.getStartProduction().bodyIds[0];
+		BitSet[] read = new BitSet[transitions];
+		int[][] reads = new int[transitions][];
+		int[] edges = new int[16];
+		long relations = 0;
+		for(int t = 0 ; t < transitions ; t++){
+			int target = toState[t];
+			read[t] = new BitSet(symbolCount);
+			if(fromState[t] == 0 && onSymbol[t] == originalStart) read[t].set(END_MARKER.id);
+			int size = 0;
+			for(int k = 0 ; k < symbolsOf[target].length ; k++){
+				NonTerminal var = this.getNonTerminal(symbolsOf[target][k]);
+				if(var == null) read[t].set(symbolsOf[target][k]);
+				else if(var.isNullable) {
+					if(size == edges.length) edges = Arrays.copyOf(edges, size * 2);
+					edges[size++] = transitionOf[edgeBase[target] + k];
+				}
+			}
+			reads[t] = Arrays.copyOf(edges, size);
+			relations += size;
+		}
+		
+		// position in each production from where the rest of its body is nullable
+		int[] nullableFrom = new int[this.ruleList.length];
+		for(int p = 0 ; p < this.ruleList.length ; p++){
+			int[] body = this.ruleList[p].bodyIds;
+			int k = body.length;
+			while(k > 0 && this.getNonTerminal(body[k - 1]) != null && this.getNonTerminal(body[k - 1]).isNullable) k--;
+			nullableFrom[p] = k;
+		}
+		
+		// includes (as pairs, from -> to) and lookback (state, production, transition), walking every production 
+		// of A from every transition on A
+		int[] includesFrom = new int[16];
+		int[] includesTo = new int[16];
+		int includesCount = 0;
+		int[] lookback = new int[48];
+		int lookbackCount = 0;
+		for(int t = 0 ; t < transitions ; t++){
+			int[] productions = this.productionsByHead[onSymbol[t]];
+			for(int j = 0 ; j < productions.length ; j++){
+				int p = productions[j];
+				int[] body = this.ruleList[p].bodyIds;
+				int state = fromState[t];
+				for(int i = 0 ; i < body.length && state >= 0 ; i++){
+					int k = Arrays.binarySearch(symbolsOf[state], body[i]);
+					if(k < 0) {		// never the case in an LR(0) automaton
+						state = -1;
+						break;
+					}
+					if(i + 1 >= nullableFrom[p] && transitionOf[edgeBase[state] + k] >= 0) {
+						if(includesCount == includesFrom.length) {
+							includesFrom = Arrays.copyOf(includesFrom, includesCount * 2);
+							includesTo = Arrays.copyOf(includesTo, includesCount * 2);
+						}
+						includesFrom[includesCount] = transitionOf[edgeBase[state] + k];
+						includesTo[includesCount++] = t;
+					}
+					state = targetsOf[state][k];
+				}
+				if(state < 0) continue;
+				if(lookbackCount + 3 > lookback.length) lookback = Arrays.copyOf(lookback, lookback.length * 2);
+				lookback[lookbackCount++] = state;
+				lookback[lookbackCount++] = p;
+				lookback[lookbackCount++] = t;
+			}
+		}
+		int[][] includes = toAdjacency(transitions , includesFrom , includesTo , includesCount);
+		relations += includesCount;
+		
+		digraph(reads , read);
+		
+		// components of reads share sets, so follow starts from copies
+		BitSet[] follow = new BitSet[transitions];
+		for(int t = 0 ; t < transitions ; t++) follow[t] = (BitSet) read[t].clone();
+		digraph(includes , follow);
+		
+		for(State state : this.states) state.LOOKAHEADS = new HashMap<Integer , BitSet>();
+		for(int i = 0 ; i < lookbackCount ; i += 3){
+			Map<Integer , BitSet> lookaheads = this.states.get(lookback[i]).LOOKAHEADS;
+			BitSet set = lookaheads.get(lookback[i + 1]);
+			if(set == null) {
+				set = new BitSet(symbolCount);
+				lookaheads.put(lookback[i + 1], set);
+			}
+			set.or(follow[lookback[i + 2]]);
+		}
+		
+		this.metrics.lookaheadTransitions += transitions;
+		this.metrics.lookaheadRelations += relations;
+	}
+	
+	/**
+	 * Lists of to for each node from 0 to nodes - 1, from count pairs (from[i] , to[i])
+	 * */
+	private static int[][] toAdjacency(int nodes , int[] from , int[] to , int count){
+		int[] degree = new int[nodes];
+		for(int i = 0 ; i < count ; i++) degree[from[i]]++;
+		int[][] adjacency = new int[nodes][];
+		for(int x = 0 ; x < nodes ; x++) adjacency[x] = new int[degree[x]];
+		Arrays.fill(degree, 0);
+		for(int i = 0 ; i < count ; i++) adjacency[from[i]][degree[from[i]]++] = to[i];
+		return adjacency;
+	}
+	
+	/**
+	 * DeRemer and Pennello's digraph: sets[x] gets the union of sets[y] of every y reachable from x in 
+	 * 	relation. Nodes of a strongly connected component end up sharing one set. Does not recurse, so 
+	 * 	long chains of relations can't overflow the stack
+	 * */
+	private static void digraph(int[][] relation , BitSet[] sets){
+		int nodes = relation.length;
+		int[] depth = new int[nodes];		// 0 not visited yet, Integer.MAX_VALUE once its component is done
+		int[] stack = new int[nodes];		// visited nodes whose component is not done yet
+		int top = 0;
+		
+		// nodes being traversed, the next edge of each and the depth it was given
+		int[] callNode = new int[nodes];
+		int[] callEdge = new int[nodes];
+		int[] callDepth = new int[nodes];
+		
+		for(int start = 0 ; start < nodes ; start++){
+			if(depth[start] != 0) continue;
+			stack[top++] = start;
+			depth[start] = top;
+			callNode[0] = start;
+			callEdge[0] = 0;
+			callDepth[0] = top;
+			int calls = 1;
+			
+			while(calls > 0){
+				int x = callNode[calls - 1];
+				if(callEdge[calls - 1] < relation[x].length){
+					int y = relation[x][callEdge[calls - 1]++];
+					if(depth[y] == 0) {
+						stack[top++] = y;
+						depth[y] = top;
+						callNode[calls] = y;
+						callEdge[calls] = 0;
+						callDepth[calls++] = top;
+						continue;
+					}
+					depth[x] = Math.min(depth[x] , depth[y]);
+					if(sets[x] != sets[y]) sets[x].or(sets[y]);
+					continue;
+				}
+				
+				// x is done. If it is the root of a component, every node above it on stack shares its set
+				if(depth[x] == callDepth[calls - 1]) {
+					int node;
+					do {
+						node = stack[--top];
+						depth[node] = Integer.MAX_VALUE;
+						sets[node] = sets[x];
+					} while(node != x);
+				}
+				calls--;
+				if(calls > 0) {
+					int caller = callNode[calls - 1];
+					depth[caller] = Math.min(depth[caller] , depth[x]);
+					if(sets[caller] != sets[x]) sets[caller].or(sets[x]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Give every production its number in rule list, and ids to its items
+	 * */
+	private void numberProductions(){
+		int itemBase = 0;
+		for(int i = 0 ; i < this.ruleList.length ; i++){
+			this.ruleList[i].number = i;
+			this.ruleList[i].itemBase = itemBase;
+			itemBase += this.ruleList[i].bodyIds.length + 1;
+		}
+	}
+	
+	/**
+	 * Create index of productions by their head, and the items with # at 0 for each production
+	 * */
+	private void indexProductions(){
+		int[] count = new int[this.symbolTable.size()];
+		for(int i = 0 ; i < this.ruleList.length ; i++) count[this.ruleList[i].headId]++;
+		
+		this.productionsByHead = new int[this.symbolTable.size()][];
+		for(int i = 0 ; i < count.length ; i++) this.productionsByHead[i] = new int[count[i]];
+		
+		Arrays.fill(count, 0);
+		this.initialItems = new ExtProduction[this.ruleList.length];
+		for(int i = 0 ; i < this.ruleList.length ; i++){
+			int head = this.ruleList[i].headId;
+			this.productionsByHead[head][count[head]++] = i;
+			this.initialItems[i] = new ExtProduction(this.ruleList[i] , 0);
+		}
+		
+		this.nonKernalClosures = new int[this.symbolTable.size()][];
+	}
+	
+	/**
+	 * Give terminals then non terminals a rank in the order of this grammar, and create a 
+	 * 	transition bucket for each symbol, to be used by setGOTO
+	 * */
+	private void rankSymbols(){
+		int symbolCount = this.symbolTable.size();
+		this.symbolRank = new int[symbolCount];
+		this.rankedSymbols = new int[symbolCount];
+		this.touchedRanks = new int[symbolCount];
+		this.gotoBuckets = new ArrayList<ArrayList<ExtProduction>>();
+		
+		Arrays.fill(this.symbolRank, -1);
+		
+		int rank = 0;
+		for(int i = 0 ; i < this.terminals.length ; i++){
+			this.rankedSymbols[rank] = this.terminals[i].id;
+			this.symbolRank[this.terminals[i].id] = rank++;
+		}
+		for(int i = 0 ; i < this.nonTerminals.length ; i++){
+			this.rankedSymbols[rank] = this.nonTerminals[i].id;
+			this.symbolRank[this.nonTerminals[i].id] = rank++;
+		}
+		for(int id = 0 ; id < symbolCount ; id++){
+			// symbols which are only in symbol table, i.e. $ when it is not used inside grammar
+			if(this.symbolRank[id] < 0) {
+				this.rankedSymbols[rank] = id;
+				this.symbolRank[id] = rank++;
+			}
+			this.gotoBuckets.add(new ArrayList<ExtProduction>());
+		}
+	}
+	
 	/**
 	 * Add new start symbol and prodcution to Grammar i.e. E' -> E
 	 * */
 	private Production addNewDummyProduction(){
 		
 		final String newStartSymbol = this.startSymbol + "'";
-		NonTerminal oldStart = this.getNonTerminalByName(this.startSymbol);
+		NonTerminal oldStart = this.getNonTerminal(this.startId);
 		
 		// create a new Terminal using newStartSymbol
 		NonTerminal newStart = new NonTerminal(newStartSymbol);
+		this.symbolTable.add(newStart);
 		newStart.FIRST_SET = oldStart.FIRST_SET;
+		newStart.FIRST_BITS = oldStart.FIRST_BITS;
 		newStart.isNullable = oldStart.isNullable;
+		newStart.nullableFlag = true;
 		newStart.FOLLOW_SET = new Terminal[0];
+		newStart.FOLLOW_BITS = new BitSet();
 		
 		ArrayList<NonTerminal> nonTermList = new ArrayList<NonTerminal>(Arrays.asList(this.nonTerminals));
 		nonTermList.add(newStart);
@@ -221,6 +1223,7 @@ public class Grammar {
 		tempbody[0] = oldStart.name;
 		
 		Production newProduction = new Production(newStartSymbol , tempbody);
+		this.symbolTable.setIds(newProduction);
 		
 		ArrayList<Production> newRuleListArr = new ArrayList<Production>(Arrays.asList(this.ruleList));
 		newRuleListArr.add(newProduction);
@@ -229,6 +1232,7 @@ public class Grammar {
 		this.ruleList = newRuleList;
 		
 		this.startSymbol = newStartSymbol;
+		this.startId = newStart.id;
 		return newProduction;
 	}
 	
@@ -238,42 +1242,41 @@ public class Grammar {
 	 * */
 	private void setGOTO (State state) {
 		ExtProduction[] closure = CLOSURE(state.kernalItems);
+		this.metrics.closures++;
+		this.metrics.closureItems += closure.length;
 		
-		//for each terminal, find to which state this state will GOTO, add that to goto map 
-		for (int i = 0 ; i < this.terminals.length ; i++){
-			String terminalName = this.terminals[i].name;
-			int nextState = this.getNextState(closure, terminalName);
-			if (nextState > 0 ) state.GOTO_MAP.put(terminalName, nextState);
+		/**
+		 * One pass over the closure: put every production where # is in front of some symbol into the bucket 
+		 * 	of that symbol, with # moved after it. Each non empty bucket is the kernal of a state this state goes to
+		 * */
+		int touched = 0;
+		for(int j = 0 ; j < closure.length ; j++){
+			// if # is at the end of Body of production. nothing needed be done
+			if(closure[j].hashPointer > closure[j].bodyIds.length-1) continue;
+			int nextSymbol = closure[j].bodyIds[ closure[j].hashPointer ];
+			ArrayList<ExtProduction> bucket = this.gotoBuckets.get(nextSymbol);
+			if(bucket.isEmpty()) this.touchedRanks[touched++] = this.symbolRank[nextSymbol];
+			bucket.add(new ExtProduction(closure[j] , closure[j].hashPointer+1));
+			this.metrics.itemsCreated++;
 		}
 		
-		//for each non terminal, find to which state this state will GOTO, add that to goto map
-		for (int i = 0 ; i < this.nonTerminals.length ; i++){
-			String terminalNName = this.nonTerminals[i].name;
-			int nextState = this.getNextState(closure, terminalNName);
-			if (nextState > 0 ) state.GOTO_MAP.put(terminalNName, nextState);
+		// terminals first then non terminals, in grammar order, so states get the same numbers as before
+		Arrays.sort(this.touchedRanks, 0, touched);
+		
+		for(int i = 0 ; i < touched ; i++){
+			int symbol = this.rankedSymbols[this.touchedRanks[i]];
+			ArrayList<ExtProduction> bucket = this.gotoBuckets.get(symbol);
+			int nextState = this.getNextState(bucket);
+			bucket.clear();
+			if (nextState > 0 ) state.GOTO_MAP.put(this.symbolTable.get(symbol).name, nextState);
 		}
 	}
 	
 	/**
-	 * Given set of productions of a State, and a Symbol(terminal or non terminal) 
-	 * 		find to which state that state will goto
+	 * Given kernal items of the state some State goes to on a Symbol(terminal or non terminal),
+	 * 		find number of that state
 	 * */
-	private int getNextState(ExtProduction[] closure , String symbol){
-		ArrayList<ExtProduction> kernalItems = new ArrayList<ExtProduction>();
-		
-		/**
-		 * Look for all the productions where # is in front of 'symbol', and for each create a new item with hash 
-		 * 	 after it, add it to kernalItems 
-		 * */
-		for(int j = 0 ; j < closure.length ; j++){
-			// if # is at the end of Body of production. nothing needed be done
-			if(closure[j].hashPointer > closure[j].body.length-1) continue;
-			String nextSymbol = closure[j].body[ closure[j].hashPointer ];
-			if(nextSymbol.compareTo(symbol) == 0) {
-				ExtProduction temp = new ExtProduction(closure[j].head , closure[j].body , closure[j].hashPointer+1);
-				kernalItems.add(temp);
-			}
-		}
+	private int getNextState(ArrayList<ExtProduction> kernalItems){
 		
 		/**if kernalItems is empty, this state will not GOTO anywhere for this symbol */
 		if(kernalItems.size() == 0) return -1;
@@ -289,20 +1292,16 @@ public class Grammar {
 		tentativeNewState.kernalItems = kernalItemsArr;
 		
 		// see it this state already exists ....
-		boolean stateAlreadyExists = false;
-		int existingStateNo = 0;
-		for (State listState:this.states){
-			if(listState.compareTo(tentativeNewState)) {
-				stateAlreadyExists = true;
-				existingStateNo = listState.state_no;
-				break;
-			}
-		}
+		Integer existingStateNo = this.stateIndex.get(tentativeNewState.getKernelKey());
 		
-		if (! stateAlreadyExists) { // create a new item
+		if (existingStateNo == null) { // create a new item
 			tentativeNewState.state_no = this.states.size();
 			this.states.add(tentativeNewState);
+			this.stateIndex.put(tentativeNewState.getKernelKey(), tentativeNewState.state_no);
 			existingStateNo = tentativeNewState.state_no;
+			this.metrics.statesCreated++;
+		} else {
+			this.metrics.statesDeduplicated++;
 		}
 		
 		return existingStateNo;
@@ -313,36 +1312,33 @@ public class Grammar {
 	 * */
 	private ExtProduction[] CLOSURE (ExtProduction[] productions){
 		List<ExtProduction> list = new ArrayList<ExtProduction>();
+		BitSet added = new BitSet(this.ruleList.length);	// productions already in list with # at 0
 		
 		// copy productions array to array list, because we will extend it here
 		for( int i = 0 ; i < productions.length ; i++){
 			list.add(productions[i]);
+			if(productions[i].hashPointer == 0) added.set(productions[i].number);
 		}
 		
 		/**
 		 * In given SET of productions, find the ones in which hash is in front of a Non Terminal(NT)
-		 * 		for each of them add all new productions to this SET whose head is NT (productions of that Non terminal), 
-		 * 		keep doing this until the SET converges
+		 * 		add all the items of non kernal closure of NT to this SET. Non kernal closure is already 
+		 * 		closed, so only kernal items need to be looked at
 		 * */
-		for(int i = 0 ; i < list.size() ; i++){
-			ExtProduction extProduction = list.get(i);
+		for(int i = 0 ; i < productions.length ; i++){
+			ExtProduction extProduction = productions[i];
 			// if # is at the end of Body of production. nothing needed be done
-			if(extProduction.hashPointer > extProduction.body.length-1) continue;
+			if(extProduction.hashPointer > extProduction.bodyIds.length-1) continue;
 						
-			String currSymbol = extProduction.body[ extProduction.hashPointer ];
+			int currSymbol = extProduction.bodyIds[ extProduction.hashPointer ];
 			
-			NonTerminal matchedNTerminal = this.getNonTerminalByName(currSymbol);
-			
-			if(matchedNTerminal != null) {	// # is in front of this non Terminal
-				
-				for(int j = 0 ; j < this.ruleList.length ; j++){
-					String head = this.ruleList[j].head;
-					
-					if(head.compareTo(matchedNTerminal.name) == 0){
-						ExtProduction newExtProduction = new ExtProduction(this.ruleList[j].head , this.ruleList[j].body , 0);
-						// add new branch to state if it is already not there
-						if(! listSearch(list , newExtProduction)) list.add(newExtProduction);
-					}
+			if(this.getNonTerminal(currSymbol) != null) {	// # is in front of this non Terminal
+				int[] nonKernal = this.getNonKernalClosure(currSymbol);
+				for(int j = 0 ; j < nonKernal.length ; j++){
+					// add new branch to state if it is already not there
+					if(added.get(nonKernal[j])) continue;
+					added.set(nonKernal[j]);
+					list.add(this.initialItems[nonKernal[j]]);
 				}
 			}
 		}
@@ -353,296 +1349,314 @@ public class Grammar {
 	}
 	
 	/**
-	 * Find if given production(element) exists in given Set(list)
+	 * Get numbers of all productions which are in closure of [ X :: # NT ... ], i.e. the productions 
+	 * 	of NT, the productions of the non terminals these start with, and so on.
+	 * Calculated once for each non terminal
 	 * */
-	private boolean listSearch(List<ExtProduction> list , ExtProduction element){
-		for(int i = 0 ; i < list.size() ; i ++){
-			if(list.get(i).compareTo(element)) return true;
+	private int[] getNonKernalClosure(int nonTerminal){
+		if(this.nonKernalClosures[nonTerminal] != null) return this.nonKernalClosures[nonTerminal];
+		
+		BitSet added = new BitSet(this.ruleList.length);
+		BitSet expanded = new BitSet(this.symbolTable.size());	// non terminals whose productions are added
+		int[] closure = new int[this.ruleList.length];
+		int size = 0;
+		
+		expanded.set(nonTerminal);
+		for(int p : this.productionsByHead[nonTerminal]){
+			added.set(p);
+			closure[size++] = p;
+		}
+		
+		for(int i = 0 ; i < size ; i++){
+			int[] body = this.ruleList[closure[i]].bodyIds;
+			if(body.length == 0) continue;
+			int first = body[0];
+			if(expanded.get(first) || this.getNonTerminal(first) == null) continue;
+			expanded.set(first);
+			for(int p : this.productionsByHead[first]){
+				if(added.get(p)) continue;
+				added.set(p);
+				closure[size++] = p;
+			}
 		}
-		return false;
+		
+		this.nonKernalClosures[nonTerminal] = Arrays.copyOf(closure, size);
+		this.metrics.nonKernalClosures++;
+		return this.nonKernalClosures[nonTerminal];
 	}
 	
 	/**
-	 * Calculate FOLLOW SETs for all non Terminals
+	 * Calculate FOLLOW SETs for all non Terminals, or only for those in only (the others are taken as they are)
 	 * */
-	private void setFOLLOW(){
+	private void setFOLLOW(BitSet only){
+		int symbolCount = this.symbolTable.size();
 		
 		/**
-		 * Add end marker($) to FOLLOW SET of start symbol
+		 * For each production A :: ... B rest , FOLLOW of B gets FIRST of rest, and if rest is nullable
+		 * 		FOLLOW of B gets everything in FOLLOW of A. So FOLLOW of A has to be pushed to B whenever it grows
 		 * */
-		NonTerminal start = this.getNonTerminalByName(this.startSymbol);
-		Terminal terminal = new Terminal("$");
-		HashSet<Terminal> temp = new HashSet<Terminal>();
-		temp.add(terminal);
-		this.mergeFOLLOWSet(start, temp);
-		
-		for(int i = 0 ; i < this.nonTerminals.length ; i++){
-			this.callStack = new HashSet<String>();
-			setFOLLOW(this.nonTerminals[i]);
+		NonTerminal[] scope = this.inScope(only);
+		for(int i = 0 ; i < scope.length ; i++){
+			scope[i].FOLLOW_BITS = new BitSet(symbolCount);
 		}
-	}
-	
-	/**
-	 * Calculate FOLLOW SET for a variable
-	 * */
-	private void setFOLLOW(NonTerminal var){
-		HashSet<Terminal> followSet = new HashSet<Terminal>();
 		
-		for(int q = 0 ; q < this.ruleList.length ; q++){		// for each production of this grammar
-			String[] body = this.ruleList[q].body;
+		/**
+		 * Add end marker($) to FOLLOW SET of start symbol (the one of the grammar, not the one setGOTO adds)
+		 * */
+		int start = this.initialItems == null ? this.startId : this.getStartProduction().bodyIds[0];
+		if(only == null || only.get(start)) this.getNonTerminal(start).FOLLOW_BITS.set(END_MARKER.id);
+		
+		ArrayList<ArrayList<NonTerminal>> dependents = newDependencyLists(symbolCount);
+		
+		int[] productions = only == null ? null : this.productionsUsing(only);
+		int count = only == null ? this.ruleList.length : productions.length;
+		for(int k = 0 ; k < count ; k++){		// for each production of this grammar (using a non terminal in only)
+			int q = only == null ? k : productions[k];
+			int[] body = this.ruleList[q].bodyIds;
+			NonTerminal head = this.getNonTerminal(this.ruleList[q].headId);
 			
-			/**
-			 * In body of this production, see if this variable(V) exists, if yes for the rest of the body:
-			 * 		find first(F) of the first Symbol after it(terminal itself for terminal , FIRST_SET for a non terminal)
-			 * 		add all to FOLLOW of this var
-			 * 		Now, if V is nullable, do whole procedure for next Symbol in rest of the body
-			 * 	If every symbol is Rest of the body is nullable, add FOLLOW of head of this production to FOLLOW of this var
-			 * 		if follow of Head doesn't exist, find that first
-			 * */
-			BODYLOOP:
-			for(int i = 0 ; i < body.length ; i++){
-				if(body[i].compareTo(var.name) == 0){ // found it
-					
-					for (int j = i+1 ; j < body.length ; j++){		// for the rest of the body
-						String currSymbol = body[j];
-						Terminal matchedTerminal = this.getTerminalByName(currSymbol);
-						if(matchedTerminal != null){ // its a terminal
-							followSet.add(matchedTerminal);
-							break BODYLOOP;
-						}
-						
-						NonTerminal matchedNTerminal = this.getNonTerminalByName(currSymbol);
-						if(matchedNTerminal != null) {		// its a non terminal
-							// Add first set of Following symbol to its follow
-							for(int k = 0 ; k < matchedNTerminal.FIRST_SET.length ; k++){
-								followSet.add(matchedNTerminal.FIRST_SET[k]);
-							}
-							
-							if(! matchedNTerminal.isNullable) break BODYLOOP;
+			// walk the body from right to left, keeping FIRST of the rest of the body and if it is nullable
+			BitSet restFirst = new BitSet(symbolCount);
+			boolean restNullable = true;
+			for(int i = body.length - 1 ; i >= 0 ; i--){
+				NonTerminal var = this.getNonTerminal(body[i]);
+				if(var != null){
+					if(only == null || only.get(var.id)) {
+						var.FOLLOW_BITS.or(restFirst);
+						if(restNullable && var != head) {
+							if(only == null || only.get(head.id)) dependents.get(head.id).add(var);
+							else var.FOLLOW_BITS.or(head.FOLLOW_BITS);		// not recalculated, so it is final
 						}
 					}
 					
-					// if you are here, means whole string after THIS VAR(in rest of body) is nullable
-					String head = this.ruleList[q].head;
-					NonTerminal headNTerminal = this.getNonTerminalByName(head);
-					
-					if(headNTerminal.FOLLOW_SET == null && ! this.callStack.contains(var.name)) {	// follow of head doesn't exist
-						this.callStack.add(var.name);
-						setFOLLOW(headNTerminal);
-						this.callStack.remove(var.name);
+					if(! var.isNullable) {
+						restFirst.clear();
+						restNullable = false;
 					}
-					
-					// copy follow of head to itself
-					if(headNTerminal.FOLLOW_SET != null)		// if itsn't still null
-					for(int k = 0 ; k < headNTerminal.FOLLOW_SET.length ; k++){
-						followSet.add(headNTerminal.FOLLOW_SET[k]);
-					}
-					
-					break;
+					restFirst.or(var.FIRST_BITS);
+				} else {
+					restFirst.clear();
+					restFirst.set(body[i]);
+					restNullable = false;
 				}
 			}
 		}
 		
-		this.mergeFOLLOWSet(var, followSet);
+		propagate(dependents , false , scope);
+		
+		for(int i = 0 ; i < scope.length ; i++){
+			scope[i].FOLLOW_SET = this.toTerminals(scope[i].FOLLOW_BITS , false);
+		}
 	}
 	
 	/**
-	 * Add new elements to FOLLOW SET of var
+	 * For all non terminals, or only for those in only, compute if they are nullable
 	 * */
-	private void mergeFOLLOWSet(NonTerminal var , HashSet<Terminal> partialFollowSet){
-		if (var.FOLLOW_SET != null && var.FOLLOW_SET.length > 0){
-			for (int i = 0 ; i < var.FOLLOW_SET.length ; i++){
-				partialFollowSet.add(var.FOLLOW_SET[i]);
+	private void setNULLABLE(BitSet only){
+		
+		/**
+		 * A production makes its head nullable once every symbol of its body is known to be nullable.
+		 * 	Keep a count of such symbols not yet known for each production, whenever a non terminal 
+		 * 	turns out to be nullable decrease the count of productions using it
+		 * */
+		int[] remaining = new int[this.ruleList.length];
+		ArrayList<ArrayList<Integer>> occurrences = new ArrayList<ArrayList<Integer>>();
+		for(int i = 0 ; i < this.symbolTable.size() ; i++) occurrences.add(new ArrayList<Integer>());
+		
+		ArrayList<NonTerminal> worklist = new ArrayList<NonTerminal>();
+		
+		NonTerminal[] scope = this.inScope(only);
+		for(int i = 0 ; i < scope.length ; i++){
+			scope[i].isNullable = false;
+			scope[i].nullableFlag = true;
+		}
+		
+		// symbols out of only which are nullable are known already, they are not counted
+		int[] productions = only == null ? null : this.productionsOf(only);
+		int count = only == null ? this.ruleList.length : productions.length;
+		for(int k = 0 ; k < count ; k++){
+			int q = only == null ? k : productions[k];
+			int[] body = this.ruleList[q].bodyIds;
+			for(int i = 0 ; i < body.length ; i++){
+				if(only != null && ! only.get(body[i]) && this.isNullable(body[i])) continue;
+				remaining[q]++;
+				occurrences.get(body[i]).add(q);
+			}
+			
+			if(remaining[q] == 0) this.markNullable(this.ruleList[q].headId , worklist);
+		}
+		
+		while(! worklist.isEmpty()){
+			NonTerminal var = worklist.remove(worklist.size() - 1);
+			for(int q : occurrences.get(var.id)){
+				if(--remaining[q] == 0) this.markNullable(this.ruleList[q].headId , worklist);
 			}
 		}
-		Terminal[] finalArray = new Terminal[partialFollowSet.size()];
-		finalArray = partialFollowSet.toArray(finalArray);
-		var.FOLLOW_SET = finalArray;
 	}
 	
-	/**
-	 * For all non terminals, compute if they are nullable
-	 * */
-	private void setNULLABLE(){
-		for (int i = 0 ; i < this.nonTerminals.length ; i++){
-			this.callStack = new HashSet<String>();
-			setNULLABLE(this.nonTerminals[i]);
-		}
+	private void markNullable(int headId , ArrayList<NonTerminal> worklist){
+		NonTerminal head = this.getNonTerminal(headId);
+		if(head.isNullable) return;
+		head.isNullable = true;
+		worklist.add(head);
 	}
 	
 	/**
-	 * For a Non Terminal, compute if it is nullable
+	 * Calculate FIRST Sets of all non terminals, or only of those in only
 	 * */
-	private void setNULLABLE(NonTerminal var){
+	private void setFIRST(BitSet only){
+		int symbolCount = this.symbolTable.size();
+		
+		NonTerminal[] scope = this.inScope(only);
+		for(int i = 0 ; i < scope.length ; i++){
+			scope[i].FIRST_BITS = new BitSet(symbolCount);
+		}
 		
-		if(var.nullableFlag) return;
 		/**
-		 * For each production headed by this var, if all the variables inside body of that production are nullable
-		 * 	this var is nullable
+		 * for each production of a var, terminals at the start of the body (after nullable non terminals) 
+		 * 	are in FIRST SET of var, and FIRST SET of every non terminal at the start of the body has to be 
+		 * 	pushed to var whenever it grows
 		 * */
-		for(int q = 0 ; q < this.ruleList.length ; q++){
-			String head = this.ruleList[q].head;
-			if(head.compareTo(var.name) == 0){		// production who's head is this variable
-				String[] body = this.ruleList[q].body;
-				// the master step ....
-				if(this.callStack.contains(Production.bodyToString(body))) continue;
-				int i = 0;
-				/**This loops breaks every time it finds a Symbol inside the production which is not nullable*/
-				for( ; i < body.length ; i++){
-					String currSymbol = body[i];
-					
-					Terminal matchedTerminal = this.getTerminalByName(currSymbol);
-					if(matchedTerminal != null) break;
-					
-					NonTerminal matchedNTerminal = this.getNonTerminalByName(currSymbol);
-					if(matchedNTerminal != null ){
-						if(matchedNTerminal.nullableFlag){
-							if(matchedNTerminal.isNullable) continue;
-							else break;
-						}
-						else {
-							this.callStack.add(Production.bodyToString(body));
-							
-							setNULLABLE(matchedNTerminal);
-							if(matchedNTerminal.nullableFlag){
-								if(matchedNTerminal.isNullable) continue;
-								else break;
-							} // else there is some problem with grammar
-							
-							this.callStack.remove(Production.bodyToString(body));
-						}
-					}
-				}
-				/** if i = body lenght, means upper loop was not broken forcibly, means there is no symbol inside the body
-				 * 		which is not nullable , set var nullable and return 
-				 * */
-				if(i == body.length) {
-					var.isNullable = true;
-					var.nullableFlag = true;
-					return;
+		ArrayList<ArrayList<NonTerminal>> dependents = newDependencyLists(symbolCount);
+		
+		int[] productions = only == null ? null : this.productionsOf(only);
+		int count = only == null ? this.ruleList.length : productions.length;
+		for(int k = 0 ; k < count ; k++){		// for each production of grammar (of a non terminal in only)
+			int q = only == null ? k : productions[k];
+			int[] body = this.ruleList[q].bodyIds;
+			NonTerminal var = this.getNonTerminal(this.ruleList[q].headId);
+			
+			for(int i = 0 ; i < body.length ; i++){
+				NonTerminal matchedNTerminal = this.getNonTerminal(body[i]);
+				if(matchedNTerminal == null) { // current symbol is a terminal
+					var.FIRST_BITS.set(body[i]);
+					break;
 				}
+				
+				if(only != null && ! only.get(matchedNTerminal.id)) var.FIRST_BITS.or(matchedNTerminal.FIRST_BITS);	// final already
+				else if(matchedNTerminal != var) dependents.get(matchedNTerminal.id).add(var);
+				if(! matchedNTerminal.isNullable) break;
 			}
 		}
 		
-		// var is not nullable
-		var.isNullable = false;
-		var.nullableFlag = true;
-		return;
+		propagate(dependents , true , scope);
+		
+		for(int i = 0 ; i < scope.length ; i++){
+			NonTerminal var = scope[i];
+			var.FIRST_SET = this.toTerminals(var.FIRST_BITS , var.isNullable);
+		}
 	}
 	
-	/**
-	 * Calculate FIRST Sets of all non terminals
-	 * */
-	private void setFIRST(){
-		for (int i = 0 ; i < this.nonTerminals.length ; i++){
-			this.callStack = new HashSet<String>();
-			if(this.nonTerminals[i].FIRST_SET == null)
-				setFIRST(this.nonTerminals[i]);
-		}
+	private ArrayList<ArrayList<NonTerminal>> newDependencyLists(int symbolCount){
+		ArrayList<ArrayList<NonTerminal>> dependents = new ArrayList<ArrayList<NonTerminal>>();
+		for(int i = 0 ; i < symbolCount ; i++) dependents.add(new ArrayList<NonTerminal>());
+		return dependents;
 	}
 	
 	/**
-	 * Calculate FIRST SET of this variable
+	 * Worklist fixpoint: whenever FIRST (or FOLLOW) bits of a non terminal grow, add them to all the non 
+	 * 	terminals depending on it, and revisit only those which changed. Starts from the non terminals of scope
 	 * */
-	private void setFIRST(NonTerminal var){
-		
-		HashSet<Terminal> firstSet = new HashSet<Terminal>();
+	private void propagate(ArrayList<ArrayList<NonTerminal>> dependents , boolean first , NonTerminal[] scope){
+		ArrayList<NonTerminal> worklist = new ArrayList<NonTerminal>();
+		BitSet queued = new BitSet(this.symbolTable.size());
+		for(int i = 0 ; i < scope.length ; i++){
+			worklist.add(scope[i]);
+			queued.set(scope[i].id);
+		}
 		
-		/**
-		 * in all productions of this grammar, find the ones heaaded by this var
-		 * 	for their bodies, add the FIRST SET of first symbols to FIRST SET of this var
-		 * 	if that first symbols is nullable add the FIRST SET of Second symbols to FIRST SET of this var and so on
-		 * */
-		for(int q = 0 ; q < this.ruleList.length ; q++){		// for each production of grammar
-			String head = this.ruleList[q].head;
-			if(head.compareTo(var.name) == 0){		// a production headed by this var
-				String[] body = this.ruleList[q].body;
-				// the master step ....
-				if(this.callStack.contains(Production.bodyToString(body))) continue;
-				// one production
-				for(int i = 0 ; i < body.length ; i++){
-					String currSymbol = body[i];
-					
-					Terminal matchedTerminal = this.getTerminalByName(currSymbol);
-					if(matchedTerminal != null) { // current symbol is a terminal
-						firstSet.add(matchedTerminal);
-						break;
-					}
-					
-					NonTerminal matchedNTerminal = this.getNonTerminalByName(currSymbol);
-					if(matchedNTerminal != null ){
-						// if first set of this Non terminal is not discovered yet
-						if(matchedNTerminal.FIRST_SET == null) {
-							this.callStack.add(Production.bodyToString(body));
-							setFIRST(matchedNTerminal);
-							this.callStack.remove(Production.bodyToString(body));
-						} 
-						// add all elemets to FIRST set of this Non Terminal
-						for(int j = 0 ; j < matchedNTerminal.FIRST_SET.length ; j++){
-							firstSet.add( matchedNTerminal.FIRST_SET[j] );
-						}
-						
-						if(matchedNTerminal.isNullable) continue;
-						else {
-							break;
-						}
-					}
-				}
-				if(var.isNullable){
-					firstSet.add(NULL_TERMINAL);
+		while(! worklist.isEmpty()){
+			NonTerminal var = worklist.remove(worklist.size() - 1);
+			queued.clear(var.id);
+			BitSet from = first ? var.FIRST_BITS : var.FOLLOW_BITS;
+			
+			for(NonTerminal dependent : dependents.get(var.id)){
+				BitSet to = first ? dependent.FIRST_BITS : dependent.FOLLOW_BITS;
+				int before = to.cardinality();
+				to.or(from);
+				if(to.cardinality() != before && ! queued.get(dependent.id)){
+					queued.set(dependent.id);
+					worklist.add(dependent);
 				}
 			}
 		}
-		
-		this.mergeFIRSTSet(var, firstSet);
 	}
 	
 	/**
-	 * Add new terminals to FIRST set of this var
+	 * All non terminals if only is null, else the ones in only
 	 * */
-	private void mergeFIRSTSet(NonTerminal var , HashSet<Terminal> partialFirstSet){
-		
-		if (var.FIRST_SET != null && var.FIRST_SET.length > 0){
-			for (int i = 0 ; i < var.FIRST_SET.length ; i++){
-				partialFirstSet.add(var.FIRST_SET[i]);
-			}
+	private NonTerminal[] inScope(BitSet only){
+		if(only == null) return this.nonTerminals;
+		NonTerminal[] scope = new NonTerminal[only.cardinality()];
+		int k = 0;
+		for(int id = only.nextSetBit(0) ; id >= 0 ; id = only.nextSetBit(id + 1)) scope[k++] = this.getNonTerminal(id);
+		return scope;
+	}
+	
+	/**
+	 * Numbers of the productions whose head is in heads
+	 * */
+	private int[] productionsOf(BitSet heads){
+		int count = 0;
+		for(int id = heads.nextSetBit(0) ; id >= 0 ; id = heads.nextSetBit(id + 1)) count += this.productionsByHead[id].length;
+		int[] productions = new int[count];
+		int k = 0;
+		for(int id = heads.nextSetBit(0) ; id >= 0 ; id = heads.nextSetBit(id + 1)){
+			for(int p : this.productionsByHead[id]) productions[k++] = p;
 		}
-		Terminal[] finalArray = new Terminal[partialFirstSet.size()];
-		finalArray = partialFirstSet.toArray(finalArray);
-		var.FIRST_SET = finalArray;
+		return productions;
 	}
 	
 	/**
-	 * Create Indices for global 'terminals' and 'nonTerminals' to the search Faster
+	 * Numbers of the productions whose body has a symbol in symbols, each once
 	 * */
-	private void createIndices(NonTerminal[] nonTerminals , Terminal[] terminals){
-		this.nonTermIndex = new HashMap<String,Integer>();
-		for (int i = 0 ; i < nonTerminals.length ; i++){
-			this.nonTermIndex.put(nonTerminals[i].name, i);
+	private int[] productionsUsing(BitSet symbols){
+		BitSet using = new BitSet(this.ruleList.length);
+		for(int id = symbols.nextSetBit(0) ; id >= 0 ; id = symbols.nextSetBit(id + 1)){
+			for(int q : this.occurrences[id]) using.set(q);
 		}
-		
-		this.termIndex = new HashMap<String, Integer>();
-		for (int i = 0 ; i < terminals.length ; i++){
-			this.termIndex.put(terminals[i].name, i);
+		int[] productions = new int[using.cardinality()];
+		int k = 0;
+		for(int q = using.nextSetBit(0) ; q >= 0 ; q = using.nextSetBit(q + 1)) productions[k++] = q;
+		return productions;
+	}
+	
+	private boolean isNullable(int id){
+		NonTerminal var = this.getNonTerminal(id);
+		return var != null && var.isNullable;
+	}
+	
+	/**
+	 * Terminals whose ids are set in bits, in order of id. NULL_TERMINAL is added for a nullable set
+	 * */
+	private Terminal[] toTerminals(BitSet bits , boolean nullable){
+		Terminal[] set = new Terminal[bits.cardinality() + (nullable ? 1 : 0)];
+		int k = 0;
+		for(int id = bits.nextSetBit(0) ; id >= 0 ; id = bits.nextSetBit(id + 1)){
+			set[k++] = this.getTerminal(id);
 		}
+		if(nullable) set[k] = NULL_TERMINAL;
+		return set;
 	}
 	
 	/**
-	 * Search a Terminal in global 'terminals' list
+	 * Get Terminal by its symbol id, null if that symbol is not a terminal
 	 * */
-	private Terminal getTerminalByName(String name){
-		Integer index = termIndex.get(name);
-		if(index == null) return null;
-		else return this.terminals[index];
+	private Terminal getTerminal(int id){
+		if(id < 0) return null;
+		Symbol symbol = this.symbolTable.get(id);
+		if(symbol instanceof Terminal) return (Terminal) symbol;
+		return null;
 	}
 	
 	/**
-	 * Search a non terminal in global 'nonTerminals' list
+	 * Get NonTerminal by its symbol id, null if that symbol is not a non terminal
 	 * */
-	private NonTerminal getNonTerminalByName(String name){
-		Integer index = this.nonTermIndex.get(name);
-		if(index == null) return null;
-		else return this.nonTerminals[index];
+	private NonTerminal getNonTerminal(int id){
+		if(id < 0) return null;
+		Symbol symbol = this.symbolTable.get(id);
+		if(symbol instanceof NonTerminal) return (NonTerminal) symbol;
+		return null;
 	}
 	
-}
+}
\ No newline at end of file
@@ -0,0 +1,158 @@
+package grammar;
+
+import java.io.PrintWriter;
+
+/**
+ * class GrammarMetrics
+ * Time taken by each phase of building a Grammar, and counts of the work done in them
+ * */
+public class GrammarMetrics {
+	
+	/**
+	 * Wall time of each phase in nano seconds. tableNanos is set when the ParseTable is compiled
+	 * */
+	public long nullableNanos;
+	public long firstNanos;
+	public long followNanos;
+	public long gotoNanos;
+	public long lalrNanos;
+	public long slrTableNanos;
+	public long tableNanos;
+	
+	/**
+	 * property ran
+	 * which of Grammar.PHASES have run, a phase that did not (LALR for an SLR(1) grammar, Parse Table before
+	 * 	it is asked for) is left out of print
+	 * */
+	private final boolean[] ran = new boolean[Grammar.PHASES.length];
+	
+	/**
+	 * property closures
+	 * calls to CLOSURE, for setGOTO and setSLR_TABLE
+	 * */
+	public long closures;
+	
+	/**
+	 * property closureItems
+	 * items in all the closures returned
+	 * */
+	public long closureItems;
+	
+	/**
+	 * property nonKernalClosures
+	 * non kernal closures of non terminals calculated, each is calculated once and then reused
+	 * */
+	public long nonKernalClosures;
+	
+	/**
+	 * property itemsCreated
+	 * items made by moving # over a symbol, i.e. candidate kernal items of states
+	 * */
+	public long itemsCreated;
+	
+	/**
+	 * property statesCreated
+	 * states of LR(0) automaton
+	 * */
+	public long statesCreated;
+	
+	/**
+	 * property statesDeduplicated
+	 * transitions found to go to a state that already existed
+	 * */
+	public long statesDeduplicated;
+	
+	/**
+	 * property lookaheadTransitions , lookaheadRelations
+	 * transitions on non terminals and edges of reads and includes relations, when LALR(1) lookaheads were calculated
+	 * */
+	public long lookaheadTransitions;
+	public long lookaheadRelations;
+	
+	/**
+	 * property tableEntries
+	 * entries (SHIFT, REDUCE, GOTO, ACCEPT) in SLR Table
+	 * */
+	public long tableEntries;
+	
+	/**
+	 * property conflicts
+	 * entries of SLR Table given two different actions
+	 * */
+	public long conflicts;
+	
+	/**
+	 * property updates , updateNanos
+	 * calls to Grammar.update, and time taken by the last one
+	 * */
+	public long updates;
+	public long updateNanos;
+	
+	/**
+	 * property updatedNonTerminals , updatedStates , updatedRows
+	 * by the last update: non terminals whose NULLABLE and FIRST or FOLLOW was calculated again (counted once 
+	 * 	for each), states whose transitions were, and lines of SLR Table made again
+	 * */
+	public long updatedNonTerminals;
+	public long updatedStates;
+	public long updatedRows;
+	
+	/**
+	 * Set time of a phase, one of Grammar.PHASES
+	 * */
+	public void setPhaseNanos(int phase , long nanos){
+		this.ran[phase] = true;
+		switch(phase){
+		case Grammar.NULLABLE_PHASE: this.nullableNanos = nanos; break;
+		case Grammar.FIRST_PHASE: this.firstNanos = nanos; break;
+		case Grammar.FOLLOW_PHASE: this.followNanos = nanos; break;
+		case Grammar.GOTO_PHASE: this.gotoNanos = nanos; break;
+		case Grammar.LALR_PHASE: this.lalrNanos = nanos; break;
+		case Grammar.SLR_TABLE_PHASE: this.slrTableNanos = nanos; break;
+		default: this.tableNanos = nanos;
+		}
+	}
+	
+	public boolean ran(int phase){
+		return this.ran[phase];
+	}
+	
+	public long totalNanos(){
+		return this.nullableNanos + this.firstNanos + this.followNanos + this.gotoNanos + this.lalrNanos + this.slrTableNanos + this.tableNanos;
+	}
+	
+	public void print(PrintWriter out){
+		out.println("phase            time (ms)");
+		long[] nanos = {this.nullableNanos , this.firstNanos , this.followNanos , this.gotoNanos , this.lalrNanos 
+				, this.slrTableNanos , this.tableNanos};
+		for(int phase = 0 ; phase < Grammar.PHASES.length ; phase++){
+			if(this.ran[phase]) printPhase(out , Grammar.PHASES[phase] , nanos[phase]);
+		}
+		printPhase(out , "total" , this.totalNanos());
+		out.println("");
+		out.println("closures              " + this.closures);
+		out.println("closure items         " + this.closureItems);
+		out.println("non kernal closures   " + this.nonKernalClosures);
+		out.println("items created         " + this.itemsCreated);
+		out.println("states created        " + this.statesCreated);
+		out.println("states deduplicated   " + this.statesDeduplicated);
+		if(this.ran[Grammar.LALR_PHASE]) {
+			out.println("lalr transitions      " + this.lookaheadTransitions);
+			out.println("lalr relations        " + this.lookaheadRelations);
+		}
+		out.println("table entries         " + this.tableEntries);
+		out.println("conflicts             " + this.conflicts);
+		if(this.updates > 0) {
+			out.println("");
+			out.println("updates               " + this.updates);
+			out.println(String.format("last update (ms)      %.3f", this.updateNanos / 1e6));
+			out.println("  non terminals       " + this.updatedNonTerminals);
+			out.println("  states              " + this.updatedStates);
+			out.println("  table lines         " + this.updatedRows);
+		}
+	}
+	
+	private static void printPhase(PrintWriter out , String phase , long nanos){
+		out.println(String.format("%-16s %10.3f", phase , nanos / 1e6));
+	}
+}
@@ -0,0 +1,40 @@
+package grammar;
+import java.util.Arrays;
+
+/**
+ * class KernelKey
+ * Canonical form of the kernal items of a State, to find an existing state by its kernal in a hash map.
+ * Items are kept as sorted item ids, so two kernals with same items in a different order get equal keys
+ * */
+public class KernelKey {
+	
+	/**
+	 * property items
+	 * sorted item ids of kernal items
+	 * */
+	private final int[] items;
+	
+	private final int hash;
+	
+	public KernelKey(ExtProduction[] kernalItems){
+		this.items = new int[kernalItems.length];
+		for(int i = 0 ; i < kernalItems.length ; i++){
+			this.items[i] = kernalItems[i].itemId();
+		}
+		Arrays.sort(this.items);
+		this.hash = Arrays.hashCode(this.items);
+	}
+	
+	@Override
+	public int hashCode(){
+		return this.hash;
+	}
+	
+	@Override
+	public boolean equals(Object other){
+		if(this == other) return true;
+		if(! (other instanceof KernelKey)) return false;
+		KernelKey another = (KernelKey) other;
+		return this.hash == another.hash && Arrays.equals(this.items, another.items);
+	}
+}
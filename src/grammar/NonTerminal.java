@@ -1,4 +1,5 @@
 package grammar;
+import java.util.BitSet;
 
 
 /**
@@ -30,6 +31,13 @@ public class NonTerminal extends Symbol {
 	 * A list of terminals which are in FOLLOW SET of this non terminal
 	 * */
 	public Terminal[] FOLLOW_SET = null;
+	
+	/**
+	 * property FIRST_BITS , FOLLOW_BITS
+	 * FIRST SET and FOLLOW SET as bits over symbol ids of terminals
+	 * */
+	public BitSet FIRST_BITS = null;
+	public BitSet FOLLOW_BITS = null;
 		
 	public NonTerminal(String name){
 		super(name);
@@ -18,6 +18,21 @@ public class Production {
 	 * */
 	public String[] body;
 	
+	/**
+	 * property headId , bodyIds
+	 * symbol ids of head and body elements, as given by SymbolTable of the grammar
+	 * */
+	public int headId = -1;
+	public int[] bodyIds;
+	
+	/**
+	 * property number , itemBase
+	 * position of this production in rule list of grammar, and id of its first item(# at 0). 
+	 * 	Item with # at position k has id itemBase + k
+	 * */
+	public int number = -1;
+	public int itemBase = -1;
+	
 	
 	public Production(String head , String[] body){
 		this.head = head;
@@ -1,4 +1,6 @@
 package grammar;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -21,6 +23,12 @@ public class State {
 	 * */
 	public ExtProduction[] kernalItems;
 	
+	/**
+	 * property kernelKey
+	 * order independent key of kernal items, to look up this state by its kernal
+	 * */
+	public KernelKey kernelKey;
+	
 	/**
 	 * property GOTO_MAP
 	 * a basic goto map for this state
@@ -36,6 +44,32 @@ public class State {
 	 * */
 	public Map<String , Action> SLR_TABLE = null;
 	
+	/**
+	 * property LOOKAHEADS
+	 * LALR(1) lookaheads of the reduces of this state, as bits over symbol ids of terminals, keyed by number 
+	 * 	of the production. null unless the grammar was built for LALR(1)
+	 * */
+	public Map<Integer , BitSet> LOOKAHEADS = null;
+	
+	/**
+	 * property CONFLICTS
+	 * every action found for the symbols whose SLR_TABLE entry had a conflict, in the order they were found 
+	 * 	(SLR_TABLE keeps the last one). Empty for a state without conflicts
+	 * */
+	public Map<String , ArrayList<Action>> CONFLICTS = new HashMap<String , ArrayList<Action>>();
+	
+	/**
+	 * property conflictCount
+	 * conflicts counted for the SLR_TABLE line of this state
+	 * */
+	public int conflictCount;
+	
+	/**
+	 * heads of the items of closure with # at the end, set with SLR_TABLE, so an update of the grammar can 
+	 * 	tell if this line depends on a FOLLOW SET that changed
+	 * */
+	int[] reduceHeads;
+	
 	/**
 	 * function compareTo
 	 * Compare this state to another for equality. (if both of them carry the same productions 
@@ -44,12 +78,11 @@ public class State {
 	public boolean compareTo(State another){
 		if(this.kernalItems.length != another.kernalItems.length ) return false;
 		
-		for (int i = 0 ; i < this.kernalItems.length ; i++){
-			if (! this.kernalItems[i].compareTo(another.kernalItems[i])){ 
-				// Is this good enough test ? What if the order is different ? 
-				return false;
-			}
-		}
-		return true;
+		return this.getKernelKey().equals(another.getKernelKey());
+	}
+	
+	public KernelKey getKernelKey(){
+		if(this.kernelKey == null) this.kernelKey = new KernelKey(this.kernalItems);
+		return this.kernelKey;
 	}
 }
@@ -13,6 +13,12 @@ public class Symbol {
 	 * */
 	public String name;
 	
+	/**
+	 * Property id
+	 * dense id given by SymbolTable, -1 until the symbol is added to one
+	 * */
+	public int id = -1;
+	
 	public Symbol(String name){
 		this.name = name;
 	}
@@ -0,0 +1,86 @@
+package grammar;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * class SymbolTable
+ * Assigns every Symbol(terminal or non terminal) of a grammar a dense int id, in the order 
+ * 	they are added. Grammar analysis works on these ids, names are kept for printing only.
+ * */
+public class SymbolTable {
+	
+	/**
+	 * property symbols
+	 * all symbols, indexed by their id
+	 * */
+	private ArrayList<Symbol> symbols = new ArrayList<Symbol>();
+	
+	/**
+	 * property nameIndex
+	 * maps name of a symbol to the symbol
+	 * */
+	private Map<String , Symbol> nameIndex = new HashMap<String , Symbol>();
+	
+	/**
+	 * function add
+	 * Give this symbol the next free id. If a symbol with same name already exists, 
+	 * 	that one is returned and nothing is added
+	 * */
+	public Symbol add(Symbol symbol){
+		Symbol existing = this.nameIndex.get(symbol.name);
+		if(existing != null) return existing;
+		
+		symbol.id = this.symbols.size();
+		this.symbols.add(symbol);
+		this.nameIndex.put(symbol.name, symbol);
+		return symbol;
+	}
+	
+	public Symbol get(int id){
+		return this.symbols.get(id);
+	}
+	
+	public Symbol get(String name){
+		return this.nameIndex.get(name);
+	}
+	
+	/**
+	 * function idOf
+	 * id of symbol with this name, -1 if there is none
+	 * */
+	public int idOf(String name){
+		Symbol symbol = this.nameIndex.get(name);
+		if(symbol == null) return -1;
+		return symbol.id;
+	}
+	
+	public boolean isTerminal(int id){
+		return this.symbols.get(id) instanceof Terminal;
+	}
+	
+	/**
+	 * function toIds
+	 * map names of a production body to symbol ids
+	 * */
+	public int[] toIds(String[] names){
+		int[] ids = new int[names.length];
+		for(int i = 0 ; i < names.length ; i++){
+			ids[i] = this.idOf(names[i]);
+		}
+		return ids;
+	}
+	
+	/**
+	 * function setIds
+	 * set head and body ids of a production from the names it carries
+	 * */
+	public void setIds(Production production){
+		production.headId = this.idOf(production.head);
+		production.bodyIds = this.toIds(production.body);
+	}
+	
+	public int size(){
+		return this.symbols.size();
+	}
+}
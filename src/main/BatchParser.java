@@ -0,0 +1,185 @@
+package main;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import grammar.Grammar;
+import parser.ParseResult;
+import parser.SLRParser;
+import parser.TokenSource;
+
+/**
+ * class BatchParser
+ * Checks many input files against one grammar. The grammar and its parse table are built once, 
+ * 	the files are parsed at the same time on a fixed number of threads, all sharing one SLRParser. 
+ * 	Every syntax error of a file is found in one pass, see SLRParser.recognizeAll
+ * */
+public class BatchParser {
+	
+	/**
+	 * class FileResult
+	 * outcome of parsing one file
+	 * */
+	public static class FileResult {
+		public String path;
+		public boolean accepted;
+		public int errorOffset = -1;
+		public String errorToken;
+		public int errorCount;
+		public long tokens;
+		public String failure;		// set if file could not be read
+	}
+	
+	private final SLRParser parser;
+	
+	private final int threads;
+	
+	public BatchParser(Grammar grammar , int threads){
+		this.parser = new SLRParser(grammar.getParseTable());
+		this.threads = threads;
+	}
+	
+	/**
+	 * function listInputs
+	 * all files inside a directory (sorted by name), or the files named one per line in a list file. 
+	 * 	A whole line is one name, so names may have spaces, blank lines are skipped
+	 * */
+	public static ArrayList<String> listInputs(String path) throws IOException{
+		ArrayList<String> inputs = new ArrayList<String>();
+		File file = new File(path);
+		
+		if(file.isDirectory()) {
+			File[] files = file.listFiles();
+			if(files == null) throw new IOException("Unable to list " + path);
+			Arrays.sort(files);
+			for(File input:files){
+				if(input.isFile()) inputs.add(input.getPath());
+			}
+			return inputs;
+		}
+		
+		BufferedReader list = new BufferedReader(new FileReader(path));
+		try {
+			String name;
+			while( (name = list.readLine()) != null ){
+				if(! name.trim().isEmpty()) inputs.add(name);
+			}
+		} finally {
+			list.close();
+		}
+		return inputs;
+	}
+	
+	/**
+	 * function parseAll
+	 * parse every file, results are in the order of inputs
+	 * */
+	public ArrayList<FileResult> parseAll(ArrayList<String> inputs) throws InterruptedException{
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+		ArrayList<Future<FileResult>> futures = new ArrayList<Future<FileResult>>();
+		
+		try {
+			for(final String input:inputs){
+				futures.add(executor.submit(new Callable<FileResult>() {
+					@Override
+					public FileResult call(){
+						return parseFile(input);
+					}
+				}));
+			}
+			
+			ArrayList<FileResult> results = new ArrayList<FileResult>();
+			for(Future<FileResult> future:futures){
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {		// parseFile catches its own errors
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private FileResult parseFile(String path){
+		FileResult result = new FileResult();
+		result.path = path;
+		
+		try {
+			final FileTokenSource file = GrammarIO.openInput(path);
+			final long[] count = new long[1];
+			try {
+				ParseResult parsed = this.parser.recognizeAll(new TokenSource() {
+					@Override
+					public String next() throws IOException {
+						String token = file.next();
+						if(token != null) count[0]++;
+						return token;
+					}
+				});
+				result.accepted = parsed.accepted;
+				result.errorOffset = parsed.errorOffset;
+				result.errorToken = parsed.errorToken;
+				result.errorCount = parsed.errors.size();
+			} finally {
+				file.close();
+			}
+			result.tokens = count[0];
+		} catch (IOException e) {
+			result.failure = e.getMessage();
+		}
+		return result;
+	}
+	
+	/**
+	 * function printResults
+	 * one line for each file
+	 * */
+	public static void printResults(ArrayList<FileResult> results , PrintWriter out){
+		for(FileResult result:results){
+			if(result.failure != null) {
+				out.println(result.path + " UNREADABLE " + result.failure);
+			} else if(result.accepted) {
+				out.println(result.path + " ACCEPTED " + result.tokens + " tokens");
+			} else {
+				out.println(result.path + " REJECTED at " + result.errorOffset 
+						+ (result.errorToken != null ? " (" + result.errorToken + ")" : " (end of input)")
+						+ (result.errorCount > 1 ? ", " + result.errorCount + " errors" : ""));
+			}
+		}
+	}
+	
+	/**
+	 * function printSummary
+	 * number of accepted and rejected files, and throughput of a batch which took nanos
+	 * */
+	public static void printSummary(ArrayList<FileResult> results , long nanos , PrintWriter out){
+		int accepted = 0;
+		int rejected = 0;
+		int failed = 0;
+		long tokens = 0;
+		
+		for(FileResult result:results){
+			tokens += result.tokens;
+			if(result.failure != null) failed++;
+			else if(result.accepted) accepted++;
+			else rejected++;
+		}
+		
+		double seconds = nanos / 1e9;
+		out.println("files: " + results.size() + ", accepted: " + accepted + ", rejected: " + rejected 
+				+ ", unreadable: " + failed);
+		out.println(String.format("time: %.3f s, %.1f files/s, %.0f tokens/s", seconds 
+				, results.size() / seconds , tokens / seconds));
+	}
+}
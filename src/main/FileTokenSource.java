@@ -0,0 +1,84 @@
+package main;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import parser.TokenSource;
+
+/**
+ * class FileTokenSource
+ * Reads tokens from a file through a fixed size buffer, tokens are separated by white space.
+ * Memory used does not depend on size of the file, only on the longest token
+ * */
+public class FileTokenSource implements TokenSource, Closeable {
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final FileChannel channel;
+	
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	
+	/**
+	 * property token
+	 * bytes of token being read, grows for long tokens
+	 * */
+	private byte[] token = new byte[64];
+	
+	private boolean endOfFile = false;
+	
+	public FileTokenSource(String filename) throws IOException {
+		this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		this.buffer.flip();		// empty, nothing read yet
+	}
+	
+	@Override
+	public String next() throws IOException {
+		int length = 0;
+		
+		for(;;){
+			if(! this.buffer.hasRemaining() && ! fill()) break;
+			
+			byte b = this.buffer.get();
+			if(isWhiteSpace(b)) {
+				if(length > 0) break;		// end of token
+				continue;					// white space before token
+			}
+			
+			if(length == this.token.length) this.token = Arrays.copyOf(this.token, length * 2);
+			this.token[length++] = b;
+		}
+		
+		if(length == 0) return null;
+		return new String(this.token , 0 , length , StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Read next chunk of file into buffer, false if file has ended
+	 * */
+	private boolean fill() throws IOException {
+		if(this.endOfFile) return false;
+		this.buffer.clear();
+		int read = 0;
+		while(read == 0) read = this.channel.read(this.buffer);
+		this.buffer.flip();
+		if(read < 0) {
+			this.endOfFile = true;
+			return false;
+		}
+		return true;
+	}
+	
+	private static boolean isWhiteSpace(byte b){
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0B;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+}
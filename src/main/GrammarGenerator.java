@@ -0,0 +1,190 @@
+package main;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import grammar.Grammar;
+
+/**
+ * class GrammarGenerator
+ * Makes random grammars in the format of a grammar file (head :: body), for testing how grammar
+ * 	construction scales. Non terminals are N0, N1 .. (N0 is start symbol), terminals are t0, t1 .. and
+ * 	keywords k0, k1 ..
+ *
+ * Every non terminal Ni has a base production using only terminals and non terminals Nk with k > i,
+ * 	so every non terminal derives some sentence, and appears in a production of some Nj with j < i,
+ * 	so every non terminal is reachable from N0. Every production starts with a keyword of its own
+ * 	(after its head, if left recursive), which keeps most of the grammars SLR(1). Conflicts left
+ * 	come mostly from empty productions
+ * */
+public class GrammarGenerator {
+	
+	/**
+	 * Shape of recursive productions
+	 * NONE: no recursion at all, non terminals only use non terminals after them
+	 * LEFT: N :: N t ..
+	 * RIGHT: N :: t .. N
+	 * MIXED: each non terminal is either LEFT, RIGHT, or nested N :: t N t
+	 * Only a non terminal itself is used recursively in its productions, and in one shape, so that 
+	 * 	the grammar is not ambiguous
+	 * */
+	public enum RECURSION { NONE , LEFT , RIGHT , MIXED }
+	
+	/**
+	 * property nonTerminals
+	 * number of non terminals
+	 * */
+	public int nonTerminals = 10;
+	
+	/**
+	 * property productions
+	 * number of productions, at least one for each non terminal. Empty productions are counted too
+	 * */
+	public int productions = 30;
+	
+	/**
+	 * property terminals
+	 * number of terminals to choose from, besides the keywords
+	 * */
+	public int terminals = 40;
+	
+	/**
+	 * property maxBodyLength
+	 * longest body of a production, not counting the non terminals added to make every non terminal reachable
+	 * */
+	public int maxBodyLength = 4;
+	
+	/**
+	 * property nullableRatio
+	 * part of the non terminals (0 to 1) given an empty production
+	 * */
+	public double nullableRatio = 0.1;
+	
+	/**
+	 * property recursion
+	 * shape of recursive productions, about half of the productions after the base ones are recursive
+	 * */
+	public RECURSION recursion = RECURSION.MIXED;
+	
+	/**
+	 * property attempts
+	 * number of grammars generateSLR tries before giving up
+	 * */
+	public int attempts = 100;
+	
+	/**
+	 * Number of keywords used so far by generate
+	 * */
+	private int keywords;
+	
+	/**
+	 * Generate one grammar, one production per line. Same seed gives same grammar
+	 * */
+	public ArrayList<String> generate(long seed){
+		
+		Random random = new Random(seed);
+		this.keywords = 0;
+		int nonTerminalCount = Math.max(1 , this.nonTerminals);
+		int terminalCount = Math.max(1 , this.terminals);
+		int bodyLength = Math.max(1 , this.maxBodyLength);
+		
+		// bodies of productions of each non terminal, first one is its base production
+		ArrayList<ArrayList<ArrayList<String>>> bodies = new ArrayList<ArrayList<ArrayList<String>>>();
+		
+		for(int i = 0 ; i < nonTerminalCount ; i++){
+			ArrayList<ArrayList<String>> own = new ArrayList<ArrayList<String>>();
+			own.add(this.body(i , false , 0 , bodyLength , terminalCount , nonTerminalCount , random));
+			bodies.add(own);
+		}
+		
+		// every non terminal after N0 is used by some non terminal before it
+		for(int i = 1 ; i < nonTerminalCount ; i++){
+			ArrayList<String> parentBody = bodies.get(random.nextInt(i)).get(0);
+			parentBody.add(1 + random.nextInt(parentBody.size()) , "N" + i);
+		}
+		
+		// 0: left recursive, 1: right recursive, 2: nested
+		int[] shapes = new int[nonTerminalCount];
+		for(int i = 0 ; i < nonTerminalCount ; i++){
+			shapes[i] = this.recursion == RECURSION.LEFT ? 0 : this.recursion == RECURSION.RIGHT ? 1 : random.nextInt(3);
+		}
+		
+		int emptyCount = 0;
+		for(int i = 0 ; i < nonTerminalCount ; i++){
+			if(random.nextDouble() < this.nullableRatio) {
+				bodies.get(i).add(new ArrayList<String>());
+				emptyCount++;
+			}
+		}
+		
+		int extra = this.productions - nonTerminalCount - emptyCount;
+		for(int i = 0 ; i < extra ; i++){
+			int head = random.nextInt(nonTerminalCount);
+			boolean recursive = this.recursion != RECURSION.NONE && random.nextBoolean();
+			bodies.get(head).add(this.body(head , recursive , shapes[head] , bodyLength , terminalCount , nonTerminalCount , random));
+		}
+		
+		ArrayList<String> lines = new ArrayList<String>();
+		for(int i = 0 ; i < nonTerminalCount ; i++){
+			ArrayList<ArrayList<String>> own = bodies.get(i);
+			for(int j = 0 ; j < own.size() ; j++){
+				ArrayList<String> body = own.get(j);
+				StringBuilder line = new StringBuilder("N" + i + " ::");
+				if(body.isEmpty()) line.append(" empty");
+				for(int k = 0 ; k < body.size() ; k++) line.append(' ').append(body.get(k));
+				lines.add(line.toString());
+			}
+		}
+		return lines;
+	}
+	
+	/**
+	 * Generate grammars from seed, seed + 1 .. until one has no SLR conflicts
+	 * */
+	public ArrayList<String> generateSLR(long seed){
+		for(int i = 0 ; i < this.attempts ; i++){
+			ArrayList<String> lines = this.generate(seed + i);
+			Grammar grammar = GrammarIO.loadFromLines(lines);
+			if(grammar.getConflictCount() == 0) return lines;
+		}
+		throw new IllegalStateException("No SLR grammar found in " + this.attempts
+				+ " attempts, use more terminals or a lower nullable ratio");
+	}
+	
+	/**
+	 * Body for a production of non terminal head. It starts with a new keyword, unless it is left recursive. 
+	 * Other than head itself, only the non terminals after head are used
+	 * */
+	private ArrayList<String> body(int head , boolean recursive , int shape , int bodyLength , int terminalCount
+			, int nonTerminalCount , Random random){
+		
+		ArrayList<String> body = new ArrayList<String>();
+		int length = 1 + random.nextInt(bodyLength);
+		
+		if(recursive && shape == 0) body.add("N" + head);
+		body.add("k" + this.keywords++);
+		
+		int rest = recursive ? length - 2 : length - 1;
+		int after = nonTerminalCount - head - 1;
+		for(int i = 0 ; i < rest ; i++){
+			if(after == 0 || random.nextBoolean()) body.add("t" + random.nextInt(terminalCount));
+			else body.add("N" + (head + 1 + random.nextInt(after)));
+		}
+		
+		if(recursive && shape == 1) body.add("N" + head);
+		if(recursive && shape == 2) {	// like ( E )
+			body.add("N" + head);
+			body.add("t" + random.nextInt(terminalCount));
+		}
+		return body;
+	}
+	
+	public static void write(List<String> lines , String filename) throws IOException{
+		PrintWriter out = new PrintWriter(filename);
+		for(int i = 0 ; i < lines.size() ; i++) out.println(lines.get(i));
+		out.close();
+	}
+}
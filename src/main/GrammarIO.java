@@ -5,17 +5,23 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 
 import grammar.ExtProduction;
 import grammar.Grammar;
+import grammar.GrammarMetrics;
 import grammar.NonTerminal;
 import grammar.Production;
 import grammar.State;
+import grammar.SymbolTable;
 import grammar.Terminal;
 import parser.ACTION_TYPE;
 import parser.Action;
+import parser.ParseForest;
+import parser.ParseMetrics;
+import parser.ParseTable;
 
 /**
  File input/output
@@ -24,11 +30,30 @@ import parser.Action;
 
 public class GrammarIO {
 	public static Grammar loadFromFile(String filePath) throws IOException {
-
-		final ArrayList<String> lines = getLines(filePath);
+		return loadFromLines(getLines(filePath));
+	}
+	
+	/**
+	 * Load a grammar whose table is LALR(1) if lalr, SLR(1) if not
+	 * */
+	public static Grammar loadFromFile(String filePath , boolean lalr) throws IOException {
+		return loadFromLines(getLines(filePath) , lalr);
+	}
+	
+	/**
+	 * Create grammar from productions in the format of a grammar file, one production per line
+	 * */
+	public static Grammar loadFromLines(List<String> lines) {
+		return loadFromLines(lines , false);
+	}
+	
+	public static Grammar loadFromLines(List<String> lines , boolean lalr) {
 
 		if(lines.isEmpty()) return null;
 
+		// every symbol gets its id here, in the order it is found
+		SymbolTable symbolTable = new SymbolTable();
+		
 		// Define Non Terminals
 		ArrayList<String> ntSymbols = new ArrayList<String>();
 		ArrayList<NonTerminal> nonTerminalList = new ArrayList<NonTerminal>();
@@ -41,6 +66,7 @@ public class GrammarIO {
 				NonTerminal nonTerminal = new NonTerminal(temp);
 				nonTerminal.FIRST_SET = null;
 				nonTerminal.FOLLOW_SET = null;
+				symbolTable.add(nonTerminal);
 				nonTerminalList.add(nonTerminal);
 			}
 		}
@@ -58,6 +84,7 @@ public class GrammarIO {
 
 			if(body[0].compareTo("empty") == 0) {	// body is set to empty
 				Production production = new Production(removeWS(headNbody[0]) , new String[0]);
+				symbolTable.setIds(production);
 				productionList.add(production);
 				continue;
 			}
@@ -72,9 +99,12 @@ public class GrammarIO {
 				if (! ntSymbols.contains(temp) && ! nSymbols.contains(temp) ) {
 					nSymbols.add(temp);
 					Terminal terminal = new Terminal(temp);
+					symbolTable.add(terminal);
 					terminalList.add(terminal);
 				}
 			}
+			
+			symbolTable.setIds(production);
 		}
 
 		NonTerminal[] nonTerminalArray = new NonTerminal[nonTerminalList.size()];
@@ -88,7 +118,26 @@ public class GrammarIO {
 
 		String startSymbol = ntSymbols.get(0);
 
-		return new Grammar(nonTerminalArray , terminalArray , productionArray , startSymbol);
+		return new Grammar(nonTerminalArray , terminalArray , productionArray , startSymbol , symbolTable , lalr);
+	}
+	
+	/**
+	 * Add and remove productions of grammar, given in the format of a grammar file, one production per line. 
+	 * 	See Grammar.update
+	 * */
+	public static void updateFromLines(Grammar grammar , List<String> added , List<String> removed) {
+		grammar.update(toProductions(added) , toProductions(removed));
+	}
+	
+	private static ArrayList<Production> toProductions(List<String> lines){
+		ArrayList<Production> productions = new ArrayList<Production>();
+		for(String line : lines){
+			String[] headNbody = line.split("::");
+			String[] body = headNbody[1].trim().split(" +");
+			if(body[0].compareTo("empty") == 0) body = new String[0];
+			productions.add(new Production(removeWS(headNbody[0]) , body));
+		}
+		return productions;
 	}
 
 	private static String removeWS(String st){
@@ -115,14 +164,23 @@ public class GrammarIO {
 	}
 
 	public static ArrayList<String> loadInputFromFile(String filename) throws IOException{
-		ArrayList<String> lines = getLines(filename);
 		ArrayList<String> tokens = new ArrayList<String>();
-		for(String line:lines){
-			String[] lineTokens = line.split(" +");
-			for(int i = 0 ; i < lineTokens.length ; i++) tokens.add(lineTokens[i]);
+		FileTokenSource input = openInput(filename);
+		try {
+			String token;
+			while( (token = input.next()) != null ) tokens.add(token);
+		} finally {
+			input.close();
 		}
 		return tokens;
 	}
+	
+	/**
+	 * Open a file to be read by parser one token at a time, without loading whole file
+	 * */
+	public static FileTokenSource openInput(String filename) throws IOException{
+		return new FileTokenSource(filename);
+	}
 
 	public static void printParseTree(final ArrayList<Action> actionList , String filename) throws IOException{
 		File file = new File(filename);
@@ -173,6 +231,14 @@ public class GrammarIO {
 
 	}
 
+	public static void printParseForest(ParseForest forest , String filename) throws IOException{
+		File file = new File(filename);
+		file.createNewFile();
+		PrintWriter out = new PrintWriter (file);
+		forest.print(out);
+		out.close();
+	}
+
 	public static void printStates(Grammar grammar , String filename) throws IOException{
 		File file = new File(filename);
 		file.createNewFile();
@@ -331,6 +397,39 @@ public class GrammarIO {
 		}
 	}
 
+	public static void printCompressionReport(Grammar grammar , String filename) throws IOException{
+		File file = new File(filename);
+		file.createNewFile();
+		PrintWriter out = new PrintWriter (file);
+		printCompressionReport(grammar , out);
+		out.close();
+	}
+	
+	public static void printCompressionReport(Grammar grammar , PrintWriter out){
+		ParseTable table = grammar.getParseTable();
+		out.println("Dense table: " + table.compressionReport());
+		out.println("Compressed table: " + table.compress().compressionReport());
+	}
+	
+	/**
+	 * Print time and counts of building the grammar (skipped if grammarMetrics is null) and of parsing
+	 * */
+	public static void printMetrics(GrammarMetrics grammarMetrics , ParseMetrics parseMetrics , String filename) throws IOException{
+		File file = new File(filename);
+		file.createNewFile();
+		PrintWriter out = new PrintWriter (file);
+		printMetrics(grammarMetrics , parseMetrics , out);
+		out.close();
+	}
+	
+	public static void printMetrics(GrammarMetrics grammarMetrics , ParseMetrics parseMetrics , PrintWriter out){
+		if(grammarMetrics != null) {
+			grammarMetrics.print(out);
+			out.println("");
+		}
+		parseMetrics.print(out);
+	}
+	
 	public static void printSLRTable(Grammar grammar , String filename) throws IOException{
 		File file = new File(filename);
 		file.createNewFile();
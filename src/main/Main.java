@@ -1,28 +1,85 @@
 package main;
 
+import java.io.BufferedWriter;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 
 import grammar.Grammar;
-import parser.Action;
+import grammar.GrammarMetrics;
+import parser.GLRParser;
+import parser.ParseForest;
+import parser.ParseMetrics;
+import parser.ParseResult;
+import parser.ParseTable;
+import parser.ParseTableFile;
+import parser.ParserGenerator;
 import parser.SLRParser;
+import parser.SyntaxError;
+import parser.TextTracer;
 
 public class Main {
 
 	public static void main(String[] args) {
 		
 		// here we go .. 
+		
+		registerFlightRecorderEvents();
+		
+		// options before any of the forms below, in any order: -lalr builds LALR(1) tables instead of SLR(1), 
+		// -trace prints every step of the parser to standard output
+		boolean lalr = false;
+		boolean trace = false;
+		while(args.length > 0 && (args[0].equals("-lalr") || args[0].equals("-trace"))) {
+			if(args[0].equals("-lalr")) lalr = true;
+			else trace = true;
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
 
 		if(args[0] == null) {
 			System.err.println("Grammar file missing.");
 			System.exit(0);
 		}
 		
+		// batch mode: -batch grammar (directory | list file) [threads]
+		if(args[0].equals("-batch")) {
+			batch(args , lalr);
+			return;
+		}
+		
+		// random grammar and sentence: -generate grammar input [non terminals] [productions] [tokens] [recursion] [nullable ratio] [seed]
+		if(args[0].equals("-generate")) {
+			generate(args);
+			return;
+		}
+		
+		// a precompiled parse table, parse without building the grammar
+		if(args[0].endsWith(".bin")) {
+			ParseTable table = null;
+			try {
+				table = ParseTableFile.load(args[0]);
+			} catch (IOException e) {
+				System.err.println("Unable to read parse table file.");
+				System.exit(0);
+			}
+			
+			if(args[1] == null) {
+				System.err.println("No input file to parse.");
+				System.exit(0);
+			}
+			
+			parseInput(table , args[1] , null , trace);
+			return;
+		}
+		
 		Grammar grammar = null;
 		
 		try {
-			grammar = GrammarIO.loadFromFile(args[0]);
+			grammar = GrammarIO.loadFromFile(args[0] , lalr);
 		} catch (IOException e) {
 			System.err.println("Unable to read grammar file.");
 			System.exit(0);
@@ -38,6 +95,9 @@ public class Main {
 				GrammarIO.printStates(grammar, "states.txt");
 				GrammarIO.printStatesAsDOT(grammar, "fsm.dot");
 				GrammarIO.printSLRTable(grammar, "SLR Table.txt");
+				ParseTableFile.write(grammar.getParseTable(), "parse table.bin");
+				ParserGenerator.generate(grammar.getParseTable(), "GeneratedParser", "GeneratedParser.java");
+				GrammarIO.printCompressionReport(grammar, "table compression.txt");
 			} catch (IOException e) {
 				System.err.println("Error writing output to file.");
 				System.exit(0);
@@ -48,36 +108,157 @@ public class Main {
 				System.exit(0);
 			}
 			
-			ArrayList<String> tokens = null;
-			
-			//System.exit(0);
-			
+			parseInput(grammar.getParseTable() , args[1] , grammar.getMetrics() , trace);
+		}
+		
+	}
+	
+	/**
+	 * Emit JFR events for grammar phases and parses if jfr.FlightRecorderEvents was compiled (from src-jfr, 
+	 * 	needs Java 11) and this JVM has Flight Recorder. Events cost nothing unless a recording enables them
+	 * */
+	private static void registerFlightRecorderEvents(){
+		try {
+			Class.forName("jfr.FlightRecorderEvents").getMethod("register").invoke(null);
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// not available, run without events
+		}
+	}
+	
+	private static void batch(String[] args , boolean lalr){
+		int threads = Runtime.getRuntime().availableProcessors();
+		if(args.length > 3) {
 			try {
-				tokens = GrammarIO.loadInputFromFile(args[1]);
-			} catch (IOException e) {
-				System.err.println("Unable to read input file.");
+				threads = Integer.parseInt(args[3]);
+			} catch (NumberFormatException e) {
+				threads = 0;
+			}
+		}
+		
+		if(args.length < 3 || threads <= 0) {
+			System.err.println("Usage: -batch grammar (directory | list file) [threads]");
+			System.err.println("threads must be a number greater than 0");
+			System.exit(0);
+		}
+		
+		try {
+			Grammar grammar = GrammarIO.loadFromFile(args[1] , lalr);
+			if(grammar == null) {
+				System.err.println("Grammar file is empty.");
 				System.exit(0);
 			}
 			
-			if(tokens != null) {
+			ArrayList<String> inputs = BatchParser.listInputs(args[2]);
+			BatchParser batchParser = new BatchParser(grammar , threads);
+			
+			long start = System.nanoTime();
+			ArrayList<BatchParser.FileResult> results = batchParser.parseAll(inputs);
+			long nanos = System.nanoTime() - start;
+			
+			PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter("batch results.txt")));
+			BatchParser.printResults(results , out);
+			out.println("");
+			BatchParser.printSummary(results , nanos , out);
+			out.close();
+			
+			PrintWriter summary = new PrintWriter(System.out);
+			BatchParser.printSummary(results , nanos , summary);
+			summary.flush();
+		} catch (IOException e) {
+			System.err.println("Unable to read grammar or input files.");
+		} catch (InterruptedException e) {
+			System.err.println("Interrupted.");
+		}
+	}
+	
+	private static void generate(String[] args){
+		if(args.length < 3) {
+			System.err.println("Usage: -generate grammar input [non terminals] [productions] [tokens] [NONE | LEFT | RIGHT | MIXED] [nullable ratio] [seed]");
+			System.exit(0);
+		}
+		
+		GrammarGenerator generator = new GrammarGenerator();
+		if(args.length > 3) generator.nonTerminals = Integer.parseInt(args[3]);
+		generator.productions = args.length > 4 ? Integer.parseInt(args[4]) : 3 * generator.nonTerminals;
+		generator.terminals = 4 * generator.nonTerminals;
+		int tokens = args.length > 5 ? Integer.parseInt(args[5]) : 1000;
+		if(args.length > 6) generator.recursion = GrammarGenerator.RECURSION.valueOf(args[6]);
+		if(args.length > 7) generator.nullableRatio = Double.parseDouble(args[7]);
+		long seed = args.length > 8 ? Long.parseLong(args[8]) : 1;
+		
+		try {
+			ArrayList<String> lines = generator.generateSLR(seed);
+			GrammarGenerator.write(lines , args[1]);
+			
+			SentenceGenerator sentences = new SentenceGenerator(GrammarIO.loadFromLines(lines));
+			ArrayList<String> sentence = sentences.generate(tokens , new Random(seed));
+			GrammarGenerator.write(sentence , args[2]);
+			
+			System.out.println(lines.size() + " productions written to " + args[1] + ", " 
+					+ sentence.size() + " tokens written to " + args[2]);
+		} catch (IllegalStateException e) {
+			System.err.println(e.getMessage());
+		} catch (IOException e) {
+			System.err.println("Error writing output to file.");
+		}
+	}
+	
+	/**
+	 * Parse inputFile, printing every step if trace, then write the metrics of grammar (if any) and the parse
+	 * */
+	private static void parseInput(ParseTable table , String inputFile , GrammarMetrics grammarMetrics , boolean trace){
+		
+		ArrayList<String> tokens = null;
+		
+		try {
+			tokens = GrammarIO.loadInputFromFile(inputFile);
+		} catch (IOException e) {
+			System.err.println("Unable to read input file.");
+			System.exit(0);
+		}
+		
+		if(tokens != null) {
+			
+			// print every step of the parser to standard output, only if asked for
+			ParseMetrics parseMetrics = new ParseMetrics();
+			TextTracer tracer = trace ? new TextTracer(System.out , tokens) : null;
+			SLRParser parser = new SLRParser(table , tracer , parseMetrics);
+			ParseResult result = parser.parse(tokens);
+			try {
+				GrammarIO.printMetrics(grammarMetrics , parseMetrics , "metrics.txt");
 				
-				try {
-					ArrayList<Action> actions = SLRParser.parse(grammar, tokens);
-					GrammarIO.printParseTree(actions, "parse tree.txt");
-					GrammarIO.printParseActions(actions, "parse actions.txt");
-				} catch (ParseException e) {
-					try {
-						GrammarIO.printParseActions(SLRParser.dead, "dead parse actions.txt");
-					} catch (IOException e1) {}
-					
+				// the parse above took one action of each conflict, GLR gives every parse of the input
+				if(table.conflictCount() > 0) {
+					ParseForest forest = new ParseForest(table , tokens.size());
+					ParseResult general = new GLRParser(table).parse(tokens , forest);
+					if(general.accepted) {
+						GrammarIO.printParseForest(forest, "parse forest.txt");
+						long trees = forest.treeCount();
+						System.err.println(table.conflictCount() + " conflicts in parse table, input has " 
+								+ (trees == ParseForest.INFINITE ? "infinitely many" : String.valueOf(trees)) 
+								+ " parse trees, " + forest.ambiguousCount() + " ambiguous nodes (see parse forest.txt)");
+					}
+				}
+				
+				if(result.accepted) {
+					GrammarIO.printParseTree(result.actions, "parse tree.txt");
+					GrammarIO.printParseActions(result.actions, "parse actions.txt");
+				} else {
+					GrammarIO.printParseActions(result.actions, "dead parse actions.txt");
+					ParseException e = result.toException();
 					System.err.println(e.getMessage() + " at" + e.getErrorOffset());
-				} catch (IOException e) {
 					
+					// go on past the first error, to list every error of the input at once
+					ParseResult all = new SLRParser(table).recognizeAll(tokens);
+					for(SyntaxError error:all.errors){
+						System.err.println("syntax error " + error + ", expected: " + String.join(" " , error.expected(table)));
+					}
 				}
+			} catch (IOException e) {
 				
 			}
+			
 		}
-		
 	}
 
 }
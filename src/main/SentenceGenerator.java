@@ -0,0 +1,276 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
+
+import grammar.Grammar;
+import grammar.Production;
+import grammar.SymbolTable;
+
+/**
+ * class SentenceGenerator
+ * Derives random sentences of a grammar, of about the asked length, ending with end marker.
+ * The derivation grows by choosing random productions until the sentence so far plus the shortest
+ * 	sentences of the symbols left would reach the length, then finishes with the productions that end
+ * 	soonest. While growing, at least one symbol left is kept able to grow (to derive sentences of any length),
+ * 	so the sentence does not stop early. When no symbol left can grow, productions of the longest sentences are
+ * 	chosen instead, as a grammar without recursion may not have sentences that long
+ * */
+public class SentenceGenerator {
+	
+	/**
+	 * Length of the shortest sentence each symbol derives, indexed by symbol id.
+	 * 1 for terminals, -1 for non terminals that derive no sentence
+	 * */
+	private int[] minLength;
+	
+	/**
+	 * For each non terminal, the production with the lowest derivation tree, used to finish a sentence
+	 * */
+	private int[] finishing;
+	
+	/**
+	 * Non terminals which derive sentences of any length, i.e. can derive themselves or such a non terminal
+	 * */
+	private BitSet growable;
+	
+	/**
+	 * Length of the longest sentence each symbol which is not growable derives, at most MAX_LENGTH
+	 * */
+	private int[] maxLength;
+	
+	private static final int MAX_LENGTH = Integer.MAX_VALUE / 2;
+	
+	/**
+	 * Numbers of productions of each non terminal which derive some sentence, and those of them with
+	 * 	a growable symbol in body
+	 * */
+	private int[][] productionsByHead;
+	private int[][] growingByHead;
+	
+	private Production[] productions;
+	
+	private SymbolTable symbolTable;
+	
+	private Grammar grammar;
+	
+	public SentenceGenerator(Grammar grammar){
+		this.grammar = grammar;
+		this.symbolTable = grammar.getSymbolTable();
+		this.productions = grammar.getProductions();
+		
+		int symbolCount = this.symbolTable.size();
+		this.minLength = new int[symbolCount];
+		this.finishing = new int[symbolCount];
+		int[] height = new int[symbolCount];
+		for(int i = 0 ; i < symbolCount ; i++){
+			boolean terminal = this.symbolTable.isTerminal(i);
+			this.minLength[i] = terminal ? 1 : -1;
+			height[i] = terminal ? 0 : -1;
+			this.finishing[i] = -1;
+		}
+		
+		// lowest derivation tree first, shortest sentence as well, until nothing changes
+		boolean changed = true;
+		while(changed){
+			changed = false;
+			for(int i = 0 ; i < this.productions.length ; i++){
+				Production production = this.productions[i];
+				int length = 0;
+				int tallest = 0;
+				for(int j = 0 ; j < production.bodyIds.length && length >= 0 ; j++){
+					int symbol = production.bodyIds[j];
+					if(this.minLength[symbol] < 0) length = -1;
+					else {
+						length += this.minLength[symbol];
+						tallest = Math.max(tallest , height[symbol]);
+					}
+				}
+				if(length < 0) continue;
+				
+				int head = production.headId;
+				if(height[head] < 0 || tallest + 1 < height[head]) {
+					height[head] = tallest + 1;
+					this.finishing[head] = i;
+					changed = true;
+				}
+				if(this.minLength[head] < 0 || length < this.minLength[head]) {
+					this.minLength[head] = length;
+					changed = true;
+				}
+			}
+		}
+		
+		this.setGrowable(symbolCount);
+		this.setMaxLength(symbolCount);
+		
+		this.productionsByHead = new int[symbolCount][];
+		this.growingByHead = new int[symbolCount][];
+		for(int i = 0 ; i < symbolCount ; i++){
+			this.productionsByHead[i] = new int[0];
+			this.growingByHead[i] = new int[0];
+		}
+		for(int i = 0 ; i < this.productions.length ; i++){
+			Production production = this.productions[i];
+			if(! this.derives(production)) continue;
+			int head = production.headId;
+			this.productionsByHead[head] = append(this.productionsByHead[head] , i);
+			if(this.grows(production)) this.growingByHead[head] = append(this.growingByHead[head] , i);
+		}
+	}
+	
+	/**
+	 * A non terminal is growable if it can reach itself, or reach a non terminal which can, through bodies
+	 * 	of productions that derive some sentence
+	 * */
+	private void setGrowable(int symbolCount){
+		BitSet[] reach = new BitSet[symbolCount];
+		for(int i = 0 ; i < symbolCount ; i++) reach[i] = new BitSet();
+		for(int i = 0 ; i < this.productions.length ; i++){
+			Production production = this.productions[i];
+			if(! this.derives(production)) continue;
+			for(int j = 0 ; j < production.bodyIds.length ; j++){
+				if(! this.symbolTable.isTerminal(production.bodyIds[j])) reach[production.headId].set(production.bodyIds[j]);
+			}
+		}
+		
+		// later symbols are usually used by earlier ones, so going backwards needs fewer passes
+		boolean changed = true;
+		while(changed){
+			changed = false;
+			for(int i = symbolCount - 1 ; i >= 0 ; i--){
+				int before = reach[i].cardinality();
+				for(int j = reach[i].nextSetBit(0) ; j >= 0 ; j = reach[i].nextSetBit(j + 1)){
+					if(j != i) reach[i].or(reach[j]);
+				}
+				if(reach[i].cardinality() != before) changed = true;
+			}
+		}
+		
+		BitSet cyclic = new BitSet();
+		for(int i = 0 ; i < symbolCount ; i++){
+			if(reach[i].get(i)) cyclic.set(i);
+		}
+		this.growable = new BitSet();
+		for(int i = 0 ; i < symbolCount ; i++){
+			if(cyclic.get(i) || reach[i].intersects(cyclic)) this.growable.set(i);
+		}
+	}
+	
+	private void setMaxLength(int symbolCount){
+		this.maxLength = new int[symbolCount];
+		for(int i = 0 ; i < symbolCount ; i++) this.maxLength[i] = this.symbolTable.isTerminal(i) ? 1 : 0;
+		
+		// bodies of symbols which are not growable only use such symbols, so this ends
+		boolean changed = true;
+		while(changed){
+			changed = false;
+			for(int i = 0 ; i < this.productions.length ; i++){
+				Production production = this.productions[i];
+				if(this.growable.get(production.headId) || ! this.derives(production)) continue;
+				long length = 0;
+				for(int j = 0 ; j < production.bodyIds.length ; j++) length += this.maxLength[production.bodyIds[j]];
+				int capped = (int) Math.min(length , MAX_LENGTH);
+				if(capped > this.maxLength[production.headId]) {
+					this.maxLength[production.headId] = capped;
+					changed = true;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Production of symbol which derives the longest sentence, for symbols which are not growable
+	 * */
+	private int longest(int symbol){
+		int[] candidates = this.productionsByHead[symbol];
+		int chosen = candidates[0];
+		long chosenLength = -1;
+		for(int i = 0 ; i < candidates.length ; i++){
+			int[] body = this.productions[candidates[i]].bodyIds;
+			long length = 0;
+			for(int j = 0 ; j < body.length ; j++) length += this.maxLength[body[j]];
+			if(length > chosenLength) {
+				chosen = candidates[i];
+				chosenLength = length;
+			}
+		}
+		return chosen;
+	}
+	
+	private boolean derives(Production production){
+		for(int i = 0 ; i < production.bodyIds.length ; i++){
+			if(this.minLength[production.bodyIds[i]] < 0) return false;
+		}
+		return true;
+	}
+	
+	private boolean grows(Production production){
+		for(int i = 0 ; i < production.bodyIds.length ; i++){
+			if(this.growable.get(production.bodyIds[i])) return true;
+		}
+		return false;
+	}
+	
+	private static int[] append(int[] array , int value){
+		int[] larger = new int[array.length + 1];
+		System.arraycopy(array, 0, larger, 0, array.length);
+		larger[array.length] = value;
+		return larger;
+	}
+	
+	/**
+	 * A sentence of grammar with about length tokens, followed by end marker
+	 * */
+	public ArrayList<String> generate(int length , Random random){
+		
+		Production start = this.grammar.getStartProduction();
+		if(this.minLength[start.headId] < 0) throw new IllegalArgumentException("Start symbol derives no sentence");
+		
+		ArrayList<String> tokens = new ArrayList<String>();
+		
+		// symbols left to derive, next one on top
+		int[] stack = new int[64];
+		int top = 0;
+		stack[0] = start.headId;
+		int pending = this.minLength[start.headId];
+		int growing = this.growable.get(start.headId) ? 1 : 0;
+		
+		while(top >= 0){
+			int symbol = stack[top--];
+			pending -= this.minLength[symbol];
+			if(this.growable.get(symbol)) growing--;
+			
+			if(this.symbolTable.isTerminal(symbol)) {
+				tokens.add(this.symbolTable.get(symbol).name);
+				continue;
+			}
+			
+			int chosen;
+			if(tokens.size() + pending >= length) chosen = this.finishing[symbol];
+			else if(growing > 0) chosen = this.pick(this.productionsByHead[symbol] , random);
+			else if(this.growingByHead[symbol].length > 0) chosen = this.pick(this.growingByHead[symbol] , random);	// last one able to grow
+			else chosen = this.longest(symbol);	// nothing left can grow, make it as long as it can be
+			
+			int[] body = this.productions[chosen].bodyIds;
+			if(top + body.length >= stack.length) {
+				int[] larger = new int[Math.max(stack.length * 2 , top + body.length + 1)];
+				System.arraycopy(stack, 0, larger, 0, top + 1);
+				stack = larger;
+			}
+			for(int i = body.length - 1 ; i >= 0 ; i--){
+				stack[++top] = body[i];
+				pending += this.minLength[body[i]];
+				if(this.growable.get(body[i])) growing++;
+			}
+		}
+		
+		tokens.add(this.grammar.getEndMarker().name);
+		return tokens;
+	}
+	
+	private int pick(int[] candidates , Random random){
+		return candidates[random.nextInt(candidates.length)];
+	}
+}
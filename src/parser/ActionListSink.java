@@ -0,0 +1,42 @@
+package parser;
+
+import java.util.ArrayList;
+
+import grammar.Production;
+
+/**
+ * class ActionListSink
+ * Keeps all actions in a list, the way SLRParser.parse returns them
+ * */
+public class ActionListSink implements ParseSink {
+	
+	private final ParseTable table;
+	
+	private final ArrayList<Action> actions = new ArrayList<Action>();
+	
+	public ActionListSink(ParseTable table){
+		this.table = table;
+	}
+	
+	public ArrayList<Action> getActions(){
+		return this.actions;
+	}
+	
+	@Override
+	public void onShift(int state_no , String token){
+		this.actions.add(this.table.toAction(ParseTable.encode(ParseTable.SHIFT , state_no)));
+	}
+	
+	@Override
+	public void onReduce(int index , Production production){
+		this.actions.add(this.table.toAction(ParseTable.encode(ParseTable.REDUCE , index)));
+	}
+	
+	@Override
+	public void onAccept(){
+		this.actions.add(this.table.toAction(ParseTable.encode(ParseTable.ACCEPT , 0)));
+	}
+	
+	@Override
+	public void onError(int errorOffset , String token){}
+}
@@ -0,0 +1,42 @@
+package parser;
+
+import java.io.PrintWriter;
+
+import grammar.Production;
+
+/**
+ * class ActionWriterSink
+ * Writes every action as soon as it is taken, in the format of GrammarIO.printParseActions
+ * */
+public class ActionWriterSink implements ParseSink {
+	
+	private final PrintWriter out;
+	
+	/**
+	 * out should be buffered, it is flushed when parse ends
+	 * */
+	public ActionWriterSink(PrintWriter out){
+		this.out = out;
+	}
+	
+	@Override
+	public void onShift(int state_no , String token){
+		this.out.println("SHIFT " + state_no);
+	}
+	
+	@Override
+	public void onReduce(int index , Production production){
+		this.out.println("REDUCE " + production.head +":: " +Production.bodyToString(production.body));
+	}
+	
+	@Override
+	public void onAccept(){
+		this.out.println("ACCEPT");
+		this.out.flush();
+	}
+	
+	@Override
+	public void onError(int errorOffset , String token){
+		this.out.flush();
+	}
+}
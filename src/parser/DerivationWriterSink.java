@@ -0,0 +1,42 @@
+package parser;
+
+import java.io.PrintWriter;
+
+import grammar.Production;
+
+/**
+ * class DerivationWriterSink
+ * Writes the productions of the rightmost derivation as the parser reduces them, one per line in 
+ * 	the format of GrammarIO.printParseTree.
+ * The parser finds the derivation bottom up, so lines come in reverse order of printParseTree: 
+ * 	last step of the derivation first. Putting them in derivation order would need all of them in memory
+ * */
+public class DerivationWriterSink implements ParseSink {
+	
+	private final PrintWriter out;
+	
+	/**
+	 * out should be buffered, it is flushed when parse ends
+	 * */
+	public DerivationWriterSink(PrintWriter out){
+		this.out = out;
+	}
+	
+	@Override
+	public void onShift(int state_no , String token){}
+	
+	@Override
+	public void onReduce(int index , Production production){
+		this.out.println(production.head +":: " +Production.bodyToString(production.body));
+	}
+	
+	@Override
+	public void onAccept(){
+		this.out.flush();
+	}
+	
+	@Override
+	public void onError(int errorOffset , String token){
+		this.out.flush();
+	}
+}
@@ -0,0 +1,541 @@
+package parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import grammar.Grammar;
+
+/**
+ * class GLRParser
+ * Generalized LR parser, for grammars whose SLR Table has conflicts (ambiguous or not SLR(1)). Where a cell
+ * 	of the table has more than one action (ParseTable.actions) the parser takes all of them: its stack becomes
+ * 	a graph-structured stack, one top node for each state reached at the current token, sharing the nodes
+ * 	below, and every parse tree of the input goes into one ParseForest.
+ * 	While there is one stack top and its cells have one action, the parser runs on a plain stack of states
+ * 	like SLRParser (building the forest as it goes), and only turns the part of it pushed since into graph
+ * 	nodes when it meets a conflict. So the deterministic parts of an input run at about the speed of an SLR
+ * 	parse building a ParseTree, and the graph only holds the regions where more than one parse was alive.
+ * Tomita's algorithm as given by Rekers: when a reduce adds a link below a node already processed at this
+ * 	token, the reduces of processed nodes are done again through that link only. Grammars where a non terminal
+ * 	derives itself (A =>+ A, e.g. A :: A or A :: B , B :: A) are parsed too: the repeated node is merged in the
+ * 	graph, so the forest gets a cycle for it. Such a forest has infinitely many trees, ParseForest.treeCount
+ * 	gives ParseForest.INFINITE for it and toParseTree takes one that does not go round the cycle.
+ * Like SLRParser, a GLRParser keeps nothing about a parse, so it can be shared by threads
+ * */
+public class GLRParser {
+	
+	private final ParseTable table;
+	
+	public GLRParser(ParseTable table){
+		this.table = table;
+	}
+	
+	public GLRParser(Grammar grammar){
+		this(grammar.getParseTable());
+	}
+	
+	/**
+	 * Parse a list of tokens into forest (cleared first). The result tells if they were accepted
+	 * */
+	public ParseResult parse(ArrayList<String> string , ParseForest forest){
+		try {
+			return parse(new ListTokenSource(string) , forest);
+		} catch (IOException e) {		// never the case, list is in memory
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Parse tokens pulled one by one from input into forest (cleared first)
+	 * */
+	public ParseResult parse(TokenSource input , ParseForest forest) throws IOException {
+		forest.clear();
+		return new Run(this.table , forest).parse(input);
+	}
+	
+	/**
+	 * class Run
+	 * The graph-structured stack of one parse, in int arrays. Node n is in nodeState[n] at nodeLevel[n] (number
+	 * 	of tokens shifted below it). Its links go down to nodes of the same or a lower level, each carrying the
+	 * 	forest node of the symbol between the two.
+	 * In deterministic mode the top of the stack is a plain stack instead, sitting on graph node detBase
+	 * */
+	private static final class Run {
+		
+		private final ParseTable table;
+		private final ParseForest forest;
+		
+		private int[] nodeState = new int[256];
+		private int[] nodeLevel = new int[256];
+		private int[] firstLink = new int[256];
+		private boolean[] queued = new boolean[256];
+		private int nodeCount;
+		
+		private int[] linkTo = new int[256];
+		private int[] linkTree = new int[256];
+		private int[] nextLink = new int[256];
+		private int linkCount;
+		
+		/**
+		 * Nodes of current level, and those of them not processed by actor yet
+		 * */
+		private int[] levelNodes = new int[16];
+		private int levelSize;
+		private int[] queue = new int[16];
+		private int queueSize;
+		
+		/**
+		 * Shifts to take once every node of current level is processed, node and state to push on it
+		 * */
+		private int[] shiftNodes = new int[16];
+		private int[] shiftStates = new int[16];
+		private int shiftSize;
+		
+		/**
+		 * Node of each state in current level, valid only if stateLevel of that state is level
+		 * */
+		private final int[] stateNode;
+		private final int[] stateLevel;
+		
+		/**
+		 * Body of the production being reduced, for each body length, when its path has no branches
+		 * */
+		private final int[][] kids;
+		
+		/**
+		 * Plain stack of deterministic mode: state, level and forest node of the symbol below each entry.
+		 * 	Entry 0 is graph node detBase, -1 when not in deterministic mode. The path below detBase has no
+		 * 	branches, so entries are taken from it when a reduce needs more than there are
+		 * */
+		private int[] detState = new int[64];
+		private int[] detLevel = new int[64];
+		private int[] detTree = new int[64];
+		private int detTop;
+		private int detBase = -1;
+		
+		/**
+		 * Level, and forest node of the entry under it, of each state when it was last pushed by a reduce on the 
+		 * 	plain stack. Pushed again on the same entry in the same level, the stack is where it was before (a 
+		 * 	non terminal derives itself), so the reduces would go round forever
+		 * */
+		private final int[] reducedLevel;
+		private final int[] reducedOn;
+		
+		/**
+		 * For nodes below current level, 1 if the path down to bottom has no branches, 2 if it has, 0 not known yet
+		 * */
+		private byte[] linear = new byte[256];
+		
+		private int level;
+		private String lookahead;
+		private int symbol;
+		private int acceptNode = -1;
+		
+		Run(ParseTable table , ParseForest forest){
+			this.table = table;
+			this.forest = forest;
+			this.stateNode = new int[table.stateCount()];
+			this.stateLevel = new int[table.stateCount()];
+			Arrays.fill(this.stateLevel, -1);
+			this.reducedLevel = new int[table.stateCount()];
+			this.reducedOn = new int[table.stateCount()];
+			Arrays.fill(this.reducedLevel, -1);
+			
+			int longest = 0;
+			for(int i = 0 ; i < table.productionCount() ; i++) longest = Math.max(longest , table.reduceLength(i));
+			this.kids = new int[longest + 1][];
+			for(int i = 0 ; i <= longest ; i++) this.kids[i] = new int[i];
+		}
+		
+		ParseResult parse(TokenSource input) throws IOException {
+			this.lookahead = input.next();
+			this.symbol = this.table.symbolId(this.lookahead);
+			this.enterDeterministic(this.nodeAt(0 , true));		// bottom of stack, state 0
+			
+			for(;;){
+				if(this.detBase >= 0) this.runDeterministic(input);
+				
+				while(this.queueSize > 0){
+					int node = this.queue[--this.queueSize];
+					this.queued[node] = false;
+					this.actor(node);
+				}
+				
+				if(this.acceptNode >= 0) {
+					this.forest.root = this.linkTree[this.firstLink[this.acceptNode]];		// start symbol, down to bottom
+					return new ParseResult(null);
+				}
+				if(this.shiftSize == 0) return new ParseResult(null , this.level + 1 , this.lookahead);	// every stack top failed
+				
+				this.shift();
+				this.lookahead = input.next();
+				this.symbol = this.table.symbolId(this.lookahead);
+				if(this.levelSize == 1 && this.isLinear(this.levelNodes[0])) this.enterDeterministic(this.levelNodes[0]);
+			}
+		}
+		
+		/**
+		 * Go on from node, the only node of current level and not processed yet, on a plain stack
+		 * */
+		private void enterDeterministic(int node){
+			this.queueSize = 0;
+			this.queued[node] = false;
+			this.detBase = node;
+			this.detTop = 0;
+			this.detState[0] = this.nodeState[node];
+			this.detLevel[0] = this.nodeLevel[node];
+			this.detTree[0] = -1;
+		}
+		
+		/**
+		 * Shift and reduce on the plain stack until a cell with more than one action, or one without a shift or 
+		 * 	reduce (ACCEPT or an error, left to the general loop which gives the result). Then turn the plain stack 
+		 * 	into graph nodes, with its top queued for actor
+		 * */
+		private void runDeterministic(TokenSource input) throws IOException {
+			final ParseTable table = this.table;
+			final ParseForest forest = this.forest;
+			
+			for(;;){
+				int state = this.detState[this.detTop];
+				if(table.hasConflicts(state) && table.actions(state , this.symbol) != null) break;
+				int code = table.action(state , this.symbol);
+				
+				if(ParseTable.type(code) == ParseTable.SHIFT) {
+					int leaf = forest.addNode(this.symbol , this.level , this.level + 1);
+					this.level++;
+					this.push(ParseTable.value(code) , leaf);
+					this.lookahead = input.next();
+					this.symbol = table.symbolId(this.lookahead);
+					continue;
+				}
+				if(ParseTable.type(code) != ParseTable.REDUCE) break;
+				
+				int production = ParseTable.value(code);
+				int length = table.reduceLength(production);
+				if(this.detTop < length && ! this.pull(length - this.detTop)) break;
+				int below = this.detTop - length;
+				int head = table.reduceHead(production);
+				int gotoCode = table.action(this.detState[below] , head);
+				if(ParseTable.type(gotoCode) != ParseTable.GOTO) break;	// should never be the case
+				
+				// a state twice in one level (hidden left recursion) needs a loop in the graph, and so does a cycle
+				int target = ParseTable.value(gotoCode);
+				if(this.detLevel[below] == this.level && this.inLevel(target , below)) break;
+				if(this.reducedLevel[target] == this.level && this.reducedOn[target] == this.detTree[below]) break;
+				this.reducedLevel[target] = this.level;
+				this.reducedOn[target] = this.detTree[below];
+				
+				int[] kids = this.kids[length];
+				System.arraycopy(this.detTree, below + 1, kids, 0, length);
+				int tree = forest.addNode(head , this.detLevel[below] , this.level);
+				forest.addPacked(tree , production , kids);
+				this.detTop = below;
+				this.push(target , tree);
+			}
+			this.leaveDeterministic();
+		}
+		
+		/**
+		 * true if state is on the plain stack in current level, at entry from or below
+		 * */
+		private boolean inLevel(int state , int from){
+			for(int i = from ; i >= 0 && this.detLevel[i] == this.level ; i--){
+				if(this.detState[i] == state) return true;
+			}
+			return false;
+		}
+		
+		private void push(int state , int tree){
+			if(++this.detTop == this.detState.length) {
+				this.detState = Arrays.copyOf(this.detState, this.detTop * 2);
+				this.detLevel = Arrays.copyOf(this.detLevel, this.detTop * 2);
+				this.detTree = Arrays.copyOf(this.detTree, this.detTop * 2);
+			}
+			this.detState[this.detTop] = state;
+			this.detLevel[this.detTop] = this.level;
+			this.detTree[this.detTop] = tree;
+		}
+		
+		/**
+		 * Put at least count more entries under the plain stack, from the path below detBase. At least as many 
+		 * 	as there are already, so pulling costs about one step for each entry. false if the path is too short
+		 * */
+		private boolean pull(int count){
+			int steps = 0;
+			int node = this.detBase;
+			int wanted = Math.max(count , this.detTop + 1);
+			while(steps < wanted && this.firstLink[node] >= 0){
+				node = this.linkTo[this.firstLink[node]];
+				steps++;
+			}
+			if(steps < count) return false;
+			
+			int size = this.detTop + 1 + steps;
+			if(size > this.detState.length) {
+				this.detState = Arrays.copyOf(this.detState, size * 2);
+				this.detLevel = Arrays.copyOf(this.detLevel, size * 2);
+				this.detTree = Arrays.copyOf(this.detTree, size * 2);
+			}
+			System.arraycopy(this.detState, 0, this.detState, steps, this.detTop + 1);
+			System.arraycopy(this.detLevel, 0, this.detLevel, steps, this.detTop + 1);
+			System.arraycopy(this.detTree, 0, this.detTree, steps, this.detTop + 1);
+			
+			// from old base down, entry steps is old base
+			node = this.detBase;
+			for(int i = steps ; i > 0 ; i--){
+				int link = this.firstLink[node];
+				this.detTree[i] = this.linkTree[link];
+				node = this.linkTo[link];
+				this.detState[i - 1] = this.nodeState[node];
+				this.detLevel[i - 1] = this.nodeLevel[node];
+			}
+			this.detTree[0] = -1;
+			this.detBase = node;
+			this.detTop += steps;
+			return true;
+		}
+		
+		/**
+		 * Make graph nodes for the entries of the plain stack above detBase. Those in current level are processed 
+		 * 	already (they took their only action), except the top one
+		 * */
+		private void leaveDeterministic(){
+			if(this.nodeLevel[this.detBase] != this.level) this.levelSize = 0;		// nodes left in it are of an earlier level
+			int below = this.detBase;
+			for(int i = 1 ; i <= this.detTop ; i++){
+				int node = this.detLevel[i] == this.level ? this.nodeAt(this.detState[i] , true) 
+						: this.newNode(this.detState[i] , this.detLevel[i]);
+				this.addLink(node , below , this.detTree[i]);
+				below = node;
+			}
+			for(int i = 0 ; i < this.queueSize ; i++) this.queued[this.queue[i]] = false;
+			this.queueSize = 0;
+			this.queue[this.queueSize++] = below;
+			this.queued[below] = true;
+			this.detBase = -1;
+		}
+		
+		/**
+		 * true if the path down from node to bottom has no branches
+		 * */
+		private boolean isLinear(int node){
+			int size = 0;
+			int[] walked = new int[16];
+			boolean result;
+			int current = node;
+			for(;;){
+				if(current != node && this.linear[current] != 0) {
+					result = this.linear[current] == 1;
+					break;
+				}
+				int link = this.firstLink[current];
+				if(link < 0) {
+					result = true;
+					break;
+				}
+				if(this.nextLink[link] >= 0) {
+					result = false;
+					break;
+				}
+				if(size == walked.length) walked = Arrays.copyOf(walked, size * 2);
+				walked[size++] = current;
+				current = this.linkTo[link];
+			}
+			
+			// nodes of current level may get more links, the others are done
+			for(int i = 0 ; i < size ; i++){
+				if(this.nodeLevel[walked[i]] < this.level) this.linear[walked[i]] = (byte) (result ? 1 : 2);
+			}
+			if(current != node && this.nodeLevel[current] < this.level) this.linear[current] = (byte) (result ? 1 : 2);
+			return result;
+		}
+		
+		/**
+		 * Take every action of node on lookahead
+		 * */
+		private void actor(int node){
+			int state = this.nodeState[node];
+			int[] codes = this.table.actions(state , this.symbol);
+			if(codes == null) {
+				this.act(node , this.table.action(state , this.symbol) , -1);
+				return;
+			}
+			for(int i = 0 ; i < codes.length ; i++) this.act(node , codes[i] , -1);
+		}
+		
+		/**
+		 * Take action code of node. If via is a link, only reduces whose path goes through it are taken
+		 * */
+		private void act(int node , int code , int via){
+			switch(ParseTable.type(code)){
+			case ParseTable.SHIFT:
+				if(via < 0) this.addShift(node , ParseTable.value(code));
+				break;
+			case ParseTable.REDUCE:
+				this.reduce(node , ParseTable.value(code) , via);
+				break;
+			case ParseTable.ACCEPT:
+				if(via < 0) this.acceptNode = node;
+				break;
+			}
+		}
+		
+		private void reduce(int node , int production , int via){
+			int length = this.table.reduceLength(production);
+			if(via >= 0 && length == 0) return;	// an empty path goes through no link
+			
+			// path without branches: follow the only link of each node
+			int[] kids = this.kids[length];
+			int end = node;
+			boolean through = via < 0;
+			for(int i = length - 1 ; i >= 0 ; i--){
+				int link = this.firstLink[end];
+				if(this.nextLink[link] >= 0) {
+					this.reducePaths(node , length , production , via , via < 0 , new int[length]);
+					return;
+				}
+				if(link == via) through = true;
+				kids[i] = this.linkTree[link];
+				end = this.linkTo[link];
+			}
+			if(through) this.reducer(end , production , kids);
+		}
+		
+		/**
+		 * Every path of length links down from node, body of production being kids[0 .. length - 1]
+		 * */
+		private void reducePaths(int node , int length , int production , int via , boolean through , int[] kids){
+			if(length == 0) {
+				if(through) this.reducer(node , production , kids);
+				return;
+			}
+			for(int link = this.firstLink[node] ; link >= 0 ; link = this.nextLink[link]){
+				kids[length - 1] = this.linkTree[link];
+				this.reducePaths(this.linkTo[link] , length - 1 , production , via , through || link == via , kids);
+			}
+		}
+		
+		/**
+		 * Reduce production, whose body is kids, to its head on top of node end
+		 * */
+		private void reducer(int end , int production , int[] kids){
+			int head = this.table.reduceHead(production);
+			int code = this.table.action(this.nodeState[end] , head);
+			if(ParseTable.type(code) != ParseTable.GOTO) return;	// should never be the case
+			int state = ParseTable.value(code);
+			
+			int node = this.nodeAt(state , false);
+			if(node >= 0) {
+				for(int link = this.firstLink[node] ; link >= 0 ; link = this.nextLink[link]){
+					if(this.linkTo[link] == end) {		// same head over same tokens, one more way to derive it
+						this.forest.addPacked(this.linkTree[link] , production , kids);
+						return;
+					}
+				}
+			}
+			
+			int tree = this.forest.addNode(head , this.nodeLevel[end] , this.level);
+			this.forest.addPacked(tree , production , kids);
+			if(node < 0) {
+				this.addLink(this.nodeAt(state , true) , end , tree);
+				return;
+			}
+			
+			// node was there already, nodes processed before may now reduce through the new link
+			int link = this.addLink(node , end , tree);
+			for(int i = 0 ; i < this.levelSize ; i++){
+				int processed = this.levelNodes[i];
+				if(this.queued[processed]) continue;
+				int[] codes = this.table.actions(this.nodeState[processed] , this.symbol);
+				if(codes == null) {
+					this.act(processed , this.table.action(this.nodeState[processed] , this.symbol) , link);
+					continue;
+				}
+				for(int j = 0 ; j < codes.length ; j++) this.act(processed , codes[j] , link);
+			}
+		}
+		
+		private void addShift(int node , int state){
+			if(this.shiftSize == this.shiftNodes.length) {
+				this.shiftNodes = Arrays.copyOf(this.shiftNodes, this.shiftSize * 2);
+				this.shiftStates = Arrays.copyOf(this.shiftStates, this.shiftSize * 2);
+			}
+			this.shiftNodes[this.shiftSize] = node;
+			this.shiftStates[this.shiftSize++] = state;
+		}
+		
+		/**
+		 * Take the shifts of current level, they all share one forest node for lookahead
+		 * */
+		private void shift(){
+			int leaf = this.forest.addNode(this.symbol , this.level , this.level + 1);
+			this.level++;
+			this.levelSize = 0;
+			for(int i = 0 ; i < this.shiftSize ; i++){
+				this.addLink(this.nodeAt(this.shiftStates[i] , true) , this.shiftNodes[i] , leaf);
+			}
+			this.shiftSize = 0;
+		}
+		
+		/**
+		 * Node of state in current level. If there is none, a new one is made (and queued for actor) if create,
+		 * 	otherwise -1
+		 * */
+		private int nodeAt(int state , boolean create){
+			if(this.stateLevel[state] == this.level) return this.stateNode[state];
+			if(! create) return -1;
+			
+			int node = this.newNode(state , this.level);
+			this.stateNode[state] = node;
+			this.stateLevel[state] = this.level;
+			
+			if(this.levelSize == this.levelNodes.length) this.levelNodes = Arrays.copyOf(this.levelNodes, this.levelSize * 2);
+			this.levelNodes[this.levelSize++] = node;
+			if(this.queueSize == this.queue.length) this.queue = Arrays.copyOf(this.queue, this.queueSize * 2);
+			this.queue[this.queueSize++] = node;
+			this.queued[node] = true;
+			return node;
+		}
+		
+		/**
+		 * A node without links, not in any level list
+		 * */
+		private int newNode(int state , int level){
+			if(this.nodeCount == this.nodeState.length) {
+				int capacity = this.nodeCount + (this.nodeCount >> 1);
+				this.nodeState = Arrays.copyOf(this.nodeState, capacity);
+				this.nodeLevel = Arrays.copyOf(this.nodeLevel, capacity);
+				this.firstLink = Arrays.copyOf(this.firstLink, capacity);
+				this.queued = Arrays.copyOf(this.queued, capacity);
+				this.linear = Arrays.copyOf(this.linear, capacity);
+			}
+			int node = this.nodeCount++;
+			this.nodeState[node] = state;
+			this.nodeLevel[node] = level;
+			this.firstLink[node] = -1;
+			this.queued[node] = false;
+			this.linear[node] = 0;
+			return node;
+		}
+		
+		/**
+		 * Link node down to node to, carrying forest node tree. New links come first in the list of node
+		 * */
+		private int addLink(int node , int to , int tree){
+			if(this.linkCount == this.linkTo.length) {
+				int capacity = this.linkCount + (this.linkCount >> 1);
+				this.linkTo = Arrays.copyOf(this.linkTo, capacity);
+				this.linkTree = Arrays.copyOf(this.linkTree, capacity);
+				this.nextLink = Arrays.copyOf(this.nextLink, capacity);
+			}
+			int link = this.linkCount++;
+			this.linkTo[link] = to;
+			this.linkTree[link] = tree;
+			this.nextLink[link] = this.firstLink[node];
+			this.firstLink[node] = link;
+			return link;
+		}
+	}
+}
@@ -0,0 +1,674 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * class IncrementalParser
+ * Parses a list of tokens, then parses it again after each edit (tokens removed and inserted at one place),
+ * 	reusing the tree of the last parse wherever the edit cannot change it.
+ *
+ * The tree is kept in an arena like ParseTree, but every node has the number of tokens it covers (width)
+ * 	instead of its position, so nodes after the edit stay valid, its parent, and the state on top of stack
+ * 	before its first token was shifted (left state). Tokens are kept in a TokenBuffer with their leaves.
+ *
+ * A parse after an edit starts at the edit, from the stack the last parse had after shifting the token
+ * 	before it: the nodes left of the path from the root to that token. Those are taken from the old tree
+ * 	only when a reduction pops them. After the edit, an old subtree is taken whole, like a token, when the
+ * 	parser is in its left state, as the parser would do exactly the same steps for it again.
+ * The parse stops as soon as it reduces a node with the stack below it and the tokens after it the same as
+ * 	those of a node of the old tree, which must then be the same symbol over the same tokens as the new node:
+ * 	the last parse went on from there exactly as this one would, so the new node takes the place of the
+ * 	old one and the rest of the old tree is kept. For a left recursive list that is the list up to the
+ * 	edited element, so the elements after it are not looked at.
+ * Work done is about the size of the edit, and of the subtrees ending at it whose parent the edit changes.
+ * 	Besides that, an edit changing the number of tokens adds to the width of each node above the one it
+ * 	replaced. If the grammar has empty productions, an edit at the very first token walks from the root down
+ * 	to it, and only old nodes starting before the edit are replaced, not those starting right at it.
+ *
+ * Reused nodes get new parents and siblings, so the last tree is gone once a parse accepts. If an edit makes
+ * 	the input rejected, the links changed by that parse are put back and the tree of the last accepted input
+ * 	is kept: edits made since then are joined into one edit covering all of them, and the next parse reuses
+ * 	the tree outside it. Only if no input was accepted yet, the next parse starts from scratch
+ * */
+public class IncrementalParser {
+	
+	private static final int INITIAL_STACK_SIZE = 64;
+	
+	/**
+	 * Links of a node (or a leaf of TokenBuffer) a parse changes, see set
+	 * */
+	private static final int NEXT_SIBLING = 0;
+	private static final int FIRST_CHILD = 1;
+	private static final int PARENT = 2;
+	private static final int LEAF = 3;
+	
+	private final ParseTable table;
+	
+	/**
+	 * Symbols which are head of some production, indexed by symbol id
+	 * */
+	private final boolean[] nonTerminal;
+	
+	private TokenBuffer tokens = new TokenBuffer(new ArrayList<String>());
+	
+	/**
+	 * Nodes: symbol id, first child, next sibling, parent, tokens covered and left state
+	 * */
+	private int[] symbol = new int[1024];
+	private int[] firstChild = new int[1024];
+	private int[] nextSibling = new int[1024];
+	private int[] parent = new int[1024];
+	private int[] width = new int[1024];
+	private int[] leftState = new int[1024];
+	private int size;
+	
+	/**
+	 * Number of nodes after the last time dead nodes were dropped
+	 * */
+	private int compactedSize;
+	
+	/**
+	 * Node of start symbol of the last accepted input, -1 if none was accepted since parse(tokens)
+	 * */
+	private int root = -1;
+	
+	/**
+	 * true if tokens were edited since the tree of root was built and the last parse rejected them
+	 * */
+	private boolean rejected;
+	
+	/**
+	 * Links of the old tree changed by the running parse, as kind, node (or token position) and the value
+	 * 	it had, so the old tree can be put back if the input is rejected. Nodes from oldSize on are new
+	 * */
+	private int[] undo = new int[3 * INITIAL_STACK_SIZE];
+	private int undoCount;
+	private int oldSize;
+	
+	/**
+	 * Counts of the last parse: subtrees taken whole, and tokens shifted one by one
+	 * */
+	private int reused;
+	private int shifted;
+	
+	/**
+	 * Parse stack, stateStack[i] is reached by nodeStack[i]. Only bottom .. top are in the arrays, below
+	 * 	them is the stack of the old tree before contextNode. Its top is left state of contextNode, or 
+	 * 	state 0 if contextNode is -1
+	 * */
+	private int[] stateStack = new int[INITIAL_STACK_SIZE];
+	private int[] nodeStack = new int[INITIAL_STACK_SIZE];
+	private int bottom;
+	private int top;
+	private int contextNode;
+	
+	/**
+	 * Below stack place cursorTop the stack holds nodes of the old tree only. A node put at place i up to
+	 * 	cursorTop has the same stack below as cursor[i] and the first children above it (-1 if none is known),
+	 * 	cursor[i] is moved up to the lowest one which may still cover as many tokens as a node put there
+	 * */
+	private int[] cursor = new int[INITIAL_STACK_SIZE];
+	private int cursorTop;
+	
+	/**
+	 * true if no production has an empty body, then the first child path down from every node ends at the
+	 * 	leaf of its first token
+	 * */
+	private final boolean noEmpty;
+	
+	/**
+	 * Old subtree starting at token reusePosition with most tokens, -1 if none
+	 * */
+	private int reusePosition;
+	private int reuseNode;
+	
+	/**
+	 * The edits made since the tree of root was built, as one: tokens start .. start + removed of the input
+	 * 	of the tree were replaced by inserted ones
+	 * */
+	private int editStart;
+	private int editRemoved;
+	private int editInserted;
+	
+	public IncrementalParser(ParseTable table){
+		this.table = table;
+		this.nonTerminal = new boolean[table.symbolCount()];
+		boolean noEmpty = true;
+		for(int i = 0 ; i < table.productionCount() ; i++){
+			this.nonTerminal[table.reduceHead(i)] = true;
+			if(table.reduceLength(i) == 0) noEmpty = false;
+		}
+		this.noEmpty = noEmpty;
+	}
+	
+	/**
+	 * Parse tokens from scratch
+	 * */
+	public ParseResult parse(List<String> tokens){
+		this.tokens = new TokenBuffer(tokens);
+		return this.parseFromScratch();
+	}
+	
+	private ParseResult parseFromScratch(){
+		this.size = 0;
+		this.root = -1;
+		this.rejected = false;
+		this.setEdit(0 , 0 , 0);
+		this.clearStack();
+		this.contextNode = -1;
+		ParseResult result = this.run(0);
+		this.compactedSize = this.size;
+		return result;
+	}
+	
+	/**
+	 * Replace removed tokens from start (starting from 0) with inserted tokens, and parse again
+	 * */
+	public ParseResult edit(int start , int removed , List<String> inserted){
+		if(start < 0 || removed < 0 || start + removed > this.tokens.size()) {
+			throw new IndexOutOfBoundsException("Edit " + start + " + " + removed + " outside " + this.tokens.size() + " tokens");
+		}
+		
+		if(this.root >= 0 && this.size > 2 * this.compactedSize) this.compact();
+		
+		// leaf of the first token the edit changes, old nodes starting at the edit are above it
+		int changed = -1;
+		if(this.root >= 0 && ! this.rejected && start < this.width[this.root]) changed = this.tokens.leaf(start);
+		
+		if(this.root >= 0) this.addEdit(start , removed , inserted.size());
+		this.tokens.replace(start , removed , inserted);
+		
+		if(this.root < 0) return this.parseFromScratch();
+		
+		if(this.editRemoved == 0) {
+			changed = this.editStart < this.width[this.root] ? this.tokens.leaf(this.editStart + this.editInserted) : -1;
+		}
+		this.clearStack();
+		if(this.editStart == 0) {
+			// nothing is left of the edit, the stack is empty. Nodes on the first child path from root have
+			// an empty stack below them too, the lowest one is where to look for a node to replace
+			this.contextNode = this.root;
+			int lowest = this.noEmpty && changed >= 0 ? changed : this.root;
+			while(this.firstChild[lowest] >= 0) lowest = this.firstChild[lowest];
+			this.cursor[this.bottom] = lowest;
+		} else {
+			// tokens after the end of the tree (after the one ACCEPT was on) have no leaf, or that of an older tree
+			if(this.editStart > this.width[this.root]) return this.parseFromScratch();
+			this.pushContext(this.tokens.leaf(this.editStart - 1) , true);
+			
+			// the sibling after the token before the edit has the stack below it, and so do its first children
+			// down to the leaf of the first changed token
+			this.cursorTop = this.top + 1;
+			if(this.cursorTop == this.cursor.length) this.resizeStack(this.stateStack.length * 2);
+			boolean next = this.noEmpty && this.nextSibling[this.nodeStack[this.top]] >= 0;
+			this.cursor[this.cursorTop] = next ? changed : -1;
+		}
+		return this.run(this.editStart);
+	}
+	
+	/**
+	 * Join an edit of tokens (not made yet) with the edits since the tree was built. If the last input was
+	 * 	accepted there are none, and the edit is taken as it is
+	 * */
+	private void addEdit(int start , int removed , int inserted){
+		if(! this.rejected) {
+			this.setEdit(start , removed , inserted);
+			return;
+		}
+		
+		// range of tokens covered by both edits, in tokens before this one. Tokens before the range and after
+		// it are the same as in the input of the tree, only shifted after it
+		int from = Math.min(this.editStart , start);
+		int to = Math.max(this.editStart + this.editInserted , start + removed);
+		this.setEdit(from , to - this.editInserted + this.editRemoved - from , to - from - removed + inserted);
+	}
+	
+	private void setEdit(int start , int removed , int inserted){
+		this.editStart = start;
+		this.editRemoved = removed;
+		this.editInserted = inserted;
+	}
+	
+	/**
+	 * The parse loop of SLRParser from token position, where the next input is an old subtree whenever one
+	 * 	can be taken whole
+	 * */
+	private ParseResult run(int position){
+		final ParseTable table = this.table;
+		final TokenBuffer tokens = this.tokens;
+		final int editEnd = this.editStart + this.editInserted;	// tokens from here on are those of the old tree
+		final int treeEnd = this.root < 0 ? 0 : editEnd + this.width[this.root] - this.editStart - this.editRemoved;	// and until here they are in it
+		this.reused = 0;
+		this.shifted = 0;
+		this.oldSize = this.size;
+		this.undoCount = 0;
+		this.reusePosition = -1;
+		
+		String lookahead = position < tokens.size() ? tokens.get(position) : null;
+		int lookaheadId = table.symbolId(lookahead);
+		
+		for(;;){
+			int state = this.topState();
+			
+			// take an old subtree starting here, if the parser is where it was before that subtree
+			if(this.contextNode >= 0 && position >= editEnd && position < treeEnd) {
+				int candidate = this.reusable(position , state);
+				if(candidate >= 0) {
+					this.push(candidate , ParseTable.value(table.action(state , this.symbol[candidate])));
+					this.reused++;
+					position += this.width[candidate];
+					lookahead = position < tokens.size() ? tokens.get(position) : null;
+					lookaheadId = table.symbolId(lookahead);
+					continue;
+				}
+			}
+			
+			if(lookahead == null) break;	// input ended before ACCEPT
+			int code = table.action(state , lookaheadId);
+			int type = ParseTable.type(code);
+			
+			if(type == ParseTable.SHIFT) {
+				int leaf = this.addNode(lookaheadId , 1 , state);
+				this.set(LEAF , position , leaf);
+				this.push(leaf , ParseTable.value(code));
+				this.shifted++;
+				position++;
+				lookahead = position < tokens.size() ? tokens.get(position) : null;
+				lookaheadId = table.symbolId(lookahead);
+			} else if(type == ParseTable.REDUCE) {
+				int production = ParseTable.value(code);
+				int length = table.reduceLength(production);
+				boolean popped = true;
+				while(this.top - this.bottom + 1 < length && popped) popped = this.extendStack();
+				if(! popped) break;	// should never be the case
+				this.top -= length;
+				
+				int node = this.addNode(table.reduceHead(production) , 0 , this.topState());
+				if(length > 0) {
+					this.firstChild[node] = this.nodeStack[this.top + 1];
+					int covered = 0;
+					for(int i = this.top + 1 ; i <= this.top + length ; i++){
+						covered += this.width[this.nodeStack[i]];
+						this.set(PARENT , this.nodeStack[i] , node);
+						this.set(NEXT_SIBLING , this.nodeStack[i] , i < this.top + length ? this.nodeStack[i + 1] : -1);
+					}
+					this.width[node] = covered;
+				}
+				
+				int inCode = table.action(this.topState() , table.reduceHead(production));
+				if(ParseTable.type(inCode) != ParseTable.GOTO) break;	// should never be the case
+				this.push(node , ParseTable.value(inCode));
+				
+				// the stack below node is that of the old tree, and the tokens after it are too
+				if(this.top <= this.cursorTop) this.cursorTop = this.top;
+				if(this.top == this.cursorTop && position >= editEnd) {
+					int old = this.replaced(node , this.width[node] - this.editInserted + this.editRemoved);
+					if(old >= 0) {
+						this.graft(old , node);
+						this.reused++;
+						this.rejected = false;
+						return new ParseResult(null);
+					}
+				}
+			} else if(type == ParseTable.ACCEPT) {
+				this.root = this.nodeStack[this.top];
+				this.set(PARENT , this.root , -1);
+				this.set(NEXT_SIBLING , this.root , -1);
+				this.rejected = false;
+				return new ParseResult(null);
+			} else {
+				break;	// ERROR, or GOTO on lookahead
+			}
+		}
+		
+		// put back the tree of the last accepted input, next edit is parsed against it
+		for(int i = this.undoCount - 1 ; i >= 0 ; i--){
+			int kind = this.undo[3 * i];
+			int index = this.undo[3 * i + 1];
+			int value = this.undo[3 * i + 2];
+			if(kind == NEXT_SIBLING) this.nextSibling[index] = value;
+			else if(kind == FIRST_CHILD) this.firstChild[index] = value;
+			else if(kind == PARENT) this.parent[index] = value;
+			else this.tokens.setLeaf(index , value);
+		}
+		this.size = this.oldSize;
+		this.rejected = true;
+		return new ParseResult(null , position + 1 , lookahead);
+	}
+	
+	/**
+	 * Set a link of node, or the leaf of token at position for LEAF, keeping the value it had if it belongs
+	 * 	to the old tree
+	 * */
+	private void set(int kind , int index , int value){
+		int[] links = kind == NEXT_SIBLING ? this.nextSibling : kind == FIRST_CHILD ? this.firstChild : this.parent;
+		if(kind == LEAF || index < this.oldSize) {
+			if(3 * this.undoCount == this.undo.length) this.undo = Arrays.copyOf(this.undo, this.undo.length * 2);
+			this.undo[3 * this.undoCount] = kind;
+			this.undo[3 * this.undoCount + 1] = index;
+			this.undo[3 * this.undoCount + 2] = kind == LEAF ? this.tokens.leaf(index) : links[index];
+			this.undoCount++;
+		}
+		if(kind == LEAF) this.tokens.setLeaf(index , value);
+		else links[index] = value;
+	}
+	
+	private int topState(){
+		if(this.top >= this.bottom) return this.stateStack[this.top];
+		return this.contextNode < 0 ? 0 : this.leftState[this.contextNode];
+	}
+	
+	private void clearStack(){
+		this.bottom = this.stateStack.length >> 1;
+		this.top = this.bottom - 1;
+		this.cursorTop = this.bottom;
+		this.cursor[this.bottom] = -1;
+	}
+	
+	private void push(int node , int state){
+		if(++this.top == this.stateStack.length) this.resizeStack(this.stateStack.length * 2);
+		this.stateStack[this.top] = state;
+		this.nodeStack[this.top] = node;
+	}
+	
+	private void resizeStack(int capacity){
+		this.stateStack = Arrays.copyOf(this.stateStack, capacity);
+		this.nodeStack = Arrays.copyOf(this.nodeStack, capacity);
+		this.cursor = Arrays.copyOf(this.cursor, capacity);
+	}
+	
+	/**
+	 * Put node of the old tree and its siblings before it at the bottom of stack, or only the siblings if not 
+	 * 	withNode. The stack before their parent is left below them
+	 * */
+	private void pushContext(int node , boolean withNode){
+		int parent = this.parent[node];
+		int count = withNode ? 1 : 0;
+		for(int sibling = this.firstChild[parent] ; sibling != node ; sibling = this.nextSibling[sibling]) count++;
+		if(this.bottom < count) {
+			int room = count + this.stateStack.length;
+			int[] stateStack = new int[this.stateStack.length + room];
+			int[] nodeStack = new int[this.nodeStack.length + room];
+			int[] cursor = new int[this.cursor.length + room];
+			System.arraycopy(this.stateStack, this.bottom, stateStack, this.bottom + room, this.top - this.bottom + 1);
+			System.arraycopy(this.nodeStack, this.bottom, nodeStack, this.bottom + room, this.top - this.bottom + 1);
+			System.arraycopy(this.cursor, this.bottom, cursor, this.bottom + room, this.cursorTop - this.bottom + 1);
+			this.stateStack = stateStack;
+			this.nodeStack = nodeStack;
+			this.cursor = cursor;
+			this.bottom += room;
+			this.top += room;
+			this.cursorTop += room;
+		}
+		
+		this.bottom -= count;
+		int i = this.bottom;
+		for(int sibling = this.firstChild[parent] ; i < this.bottom + count ; sibling = this.nextSibling[sibling]){
+			this.nodeStack[i] = sibling;
+			this.cursor[i] = i == this.bottom ? parent : -1;
+			this.stateStack[i] = ParseTable.value(this.table.action(this.leftState[sibling] , this.symbol[sibling]));
+			i++;
+		}
+		this.contextNode = parent;
+	}
+	
+	/**
+	 * Put more of the old stack in the arrays, false if there is no more. The first children on the way up
+	 * 	from contextNode have the same stack before them, the siblings of the first node that is not are pushed
+	 * */
+	private boolean extendStack(){
+		if(this.contextNode < 0) return false;
+		int node = this.contextNode;
+		while(this.parent[node] >= 0 && this.firstChild[this.parent[node]] == node) node = this.parent[node];
+		if(this.parent[node] < 0) return false;
+		this.pushContext(node , false);
+		return true;
+	}
+	
+	/**
+	 * Node of the old tree that node (just reduced at stack place cursorTop) takes the place of, if there is
+	 * 	one with its symbol covering width tokens of the old tree, -1 if not. Both start at the same token, as
+	 * 	the stack below them is the same
+	 * */
+	private int replaced(int node , int width){
+		int lowest = this.cursor[this.cursorTop];
+		if(lowest < 0) return -1;
+		while(this.width[lowest] < width && this.isFirstChild(lowest) && this.parent[lowest] < this.oldSize) lowest = this.parent[lowest];
+		this.cursor[this.cursorTop] = lowest;
+		for(int old = lowest ; this.width[old] == width && this.parent[old] < this.oldSize ; old = this.parent[old]){
+			if(this.symbol[old] == this.symbol[node] && this.leftState[old] == this.leftState[node]) return old;
+			if(! this.isFirstChild(old)) break;
+		}
+		return -1;
+	}
+	
+	private boolean isFirstChild(int node){
+		return this.parent[node] >= 0 && this.firstChild[this.parent[node]] == node;
+	}
+	
+	/**
+	 * Put node in the place of old in the tree, nodes above it cover as many more tokens as node does
+	 * */
+	private void graft(int old , int node){
+		int parent = this.parent[old];
+		int added = this.width[node] - this.width[old];
+		if(added != 0) {
+			for(int above = parent ; above >= 0 ; above = this.parent[above]) this.width[above] += added;
+		}
+		this.set(PARENT , node , parent);
+		this.set(NEXT_SIBLING , node , this.nextSibling[old]);
+		if(parent < 0) {
+			this.root = node;
+		} else if(this.firstChild[parent] == old) {
+			this.set(FIRST_CHILD , parent , node);
+		} else {
+			int before = this.firstChild[parent];
+			while(this.nextSibling[before] != old) before = this.nextSibling[before];
+			this.set(NEXT_SIBLING , before , node);
+		}
+	}
+	
+	/**
+	 * The old subtree whose first token is at position (after the edit), which the parser can take in state
+	 * 	through a GOTO, the one with most tokens if more can. -1 if there is none
+	 * */
+	private int reusable(int position , int state){
+		int leaf = this.tokens.leaf(position);
+		if(leaf < 0) return -1;
+		
+		if(this.reusePosition != position) {
+			int node = leaf;
+			while(this.parent[node] >= 0 && this.startsWith(this.parent[node] , node)) node = this.parent[node];
+			this.reusePosition = position;
+			this.reuseNode = node;
+		}
+		
+		for(int node = this.reuseNode ; node != leaf ; ){
+			if(this.leftState[node] == state && ParseTable.type(this.table.action(state , this.symbol[node])) == ParseTable.GOTO) return node;
+			node = this.firstChild[node];
+			while(this.width[node] == 0) node = this.nextSibling[node];
+		}
+		return -1;
+	}
+	
+	/**
+	 * true if child of node (in the old tree) starts at the first token of node. A sibling before child that
+	 * 	this parse took has another next sibling now, but then child does not start node anyway
+	 * */
+	private boolean startsWith(int node , int child){
+		for(int sibling = this.firstChild[node] ; sibling != child ; sibling = this.nextSibling[sibling]){
+			if(sibling < 0 || this.width[sibling] > 0) return false;
+		}
+		return true;
+	}
+	
+	private int addNode(int symbol , int width , int leftState){
+		if(this.size == this.symbol.length) this.resize(this.size + (this.size >> 1));
+		int node = this.size++;
+		this.symbol[node] = symbol;
+		this.firstChild[node] = -1;
+		this.nextSibling[node] = -1;
+		this.parent[node] = -1;
+		this.width[node] = width;
+		this.leftState[node] = leftState;
+		return node;
+	}
+	
+	private void resize(int capacity){
+		this.symbol = Arrays.copyOf(this.symbol, capacity);
+		this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+		this.nextSibling = Arrays.copyOf(this.nextSibling, capacity);
+		this.parent = Arrays.copyOf(this.parent, capacity);
+		this.width = Arrays.copyOf(this.width, capacity);
+		this.leftState = Arrays.copyOf(this.leftState, capacity);
+	}
+	
+	/**
+	 * Drop nodes no longer in the tree, moving the live ones to the front. Done when the arena has doubled,
+	 * 	so it costs a constant amount for each node added
+	 * */
+	private void compact(){
+		int[] moved = new int[this.size];
+		Arrays.fill(moved, -1);
+		int[] parent = new int[this.size];
+		
+		// number the live nodes in preorder
+		int count = 0;
+		int[] stack = new int[INITIAL_STACK_SIZE];
+		int top = 0;
+		stack[0] = this.root;
+		parent[0] = -1;		// root is numbered 0
+		while(top >= 0){
+			int node = stack[top--];
+			moved[node] = count++;
+			for(int child = this.firstChild[node] ; child >= 0 ; child = this.nextSibling[child]){
+				if(++top == stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+				stack[top] = child;
+			}
+		}
+		
+		int[] symbol = new int[count];
+		int[] firstChild = new int[count];
+		int[] nextSibling = new int[count];
+		int[] width = new int[count];
+		int[] leftState = new int[count];
+		for(int node = 0 ; node < this.size ; node++){
+			int to = moved[node];
+			if(to < 0) continue;
+			symbol[to] = this.symbol[node];
+			firstChild[to] = this.firstChild[node] < 0 ? -1 : moved[this.firstChild[node]];
+			nextSibling[to] = this.nextSibling[node] < 0 ? -1 : moved[this.nextSibling[node]];
+			width[to] = this.width[node];
+			leftState[to] = this.leftState[node];
+			for(int child = this.firstChild[node] ; child >= 0 ; child = this.nextSibling[child]) parent[moved[child]] = to;
+		}
+		this.symbol = symbol;
+		this.firstChild = firstChild;
+		this.nextSibling = nextSibling;
+		this.parent = parent;
+		this.width = width;
+		this.leftState = leftState;
+		this.tokens.renumberLeaves(moved);
+		this.root = moved[this.root];
+		this.size = count;
+		this.compactedSize = count;
+		this.resize(Math.max(16 , count + (count >> 1)));
+	}
+	
+	/**
+	 * Copy of the tree as a ParseTree, with token positions. null if last input was rejected
+	 * */
+	public ParseTree toParseTree(){
+		if(this.root < 0 || this.rejected) return null;
+		ParseTree tree = new ParseTree(this.table , this.size);
+		
+		// old node and its copy, whose children are still to be copied
+		int[] stack = new int[2 * INITIAL_STACK_SIZE];
+		int top = 0;
+		stack[0] = this.root;
+		stack[1] = tree.addNode(this.symbol[this.root] , 0);
+		tree.root = stack[1];
+		while(top >= 0){
+			int node = stack[2 * top];
+			int copy = stack[2 * top + 1];
+			top--;
+			
+			int position = tree.tokenIndex[copy];
+			int previous = -1;
+			for(int child = this.firstChild[node] ; child >= 0 ; child = this.nextSibling[child]){
+				int childCopy = tree.addNode(this.symbol[child] , position);
+				position += this.width[child];
+				if(previous < 0) tree.firstChild[copy] = childCopy;
+				else tree.nextSibling[previous] = childCopy;
+				previous = childCopy;
+				
+				if(2 * (++top) + 1 >= stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+				stack[2 * top] = child;
+				stack[2 * top + 1] = childCopy;
+			}
+		}
+		tree.trim();
+		return tree;
+	}
+	
+	public List<String> getTokens(){
+		return this.tokens;
+	}
+	
+	/**
+	 * Node of start symbol, -1 if last input was rejected
+	 * */
+	public int root(){
+		return this.rejected ? -1 : this.root;
+	}
+	
+	public int symbol(int node){
+		return this.symbol[node];
+	}
+	
+	public String symbolName(int node){
+		return this.table.symbolName(this.symbol[node]);
+	}
+	
+	public int firstChild(int node){
+		return this.firstChild[node];
+	}
+	
+	public int nextSibling(int node){
+		return this.nextSibling[node];
+	}
+	
+	/**
+	 * Parent of node, -1 for the root
+	 * */
+	public int parent(int node){
+		return this.parent[node];
+	}
+	
+	/**
+	 * Number of tokens node covers
+	 * */
+	public int width(int node){
+		return this.width[node];
+	}
+	
+	public boolean isLeaf(int node){
+		return ! this.nonTerminal[this.symbol[node]];
+	}
+	
+	/**
+	 * Subtrees of the old tree taken whole by the last parse, the rest of the old tree it went back to counts as one
+	 * */
+	public int reusedSubtrees(){
+		return this.reused;
+	}
+	
+	/**
+	 * Tokens shifted one by one by the last parse
+	 * */
+	public int shiftedTokens(){
+		return this.shifted;
+	}
+}
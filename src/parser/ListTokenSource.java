@@ -0,0 +1,24 @@
+package parser;
+
+import java.util.List;
+
+/**
+ * class ListTokenSource
+ * TokenSource over tokens already in memory
+ * */
+public class ListTokenSource implements TokenSource {
+	
+	private final List<String> tokens;
+	
+	private int index = 0;
+	
+	public ListTokenSource(List<String> tokens){
+		this.tokens = tokens;
+	}
+	
+	@Override
+	public String next(){
+		if(this.index >= this.tokens.size()) return null;
+		return this.tokens.get(this.index++);
+	}
+}
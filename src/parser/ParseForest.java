@@ -0,0 +1,563 @@
+package parser;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import grammar.Production;
+
+/**
+ * class ParseForest
+ * Shared packed parse forest made by GLRParser: every parse tree of an input, in one graph.
+ * A symbol node stands for a symbol deriving the tokens from start (inclusive) to end (exclusive). A non terminal
+ * 	node has one packed node for each way it was derived, a production and the symbol nodes of its body.
+ * 	Symbol nodes are shared by all the packed nodes using them, so an ambiguous region costs about as much as
+ * 	its alternatives, not as the number of trees they make.
+ * Kept in parallel int arrays like ParseTree: symbol nodes and packed nodes are numbered from 0, and the children of
+ * 	packed node p are children[childStart[p]] .. children[childStart[p] + childCount[p] - 1]
+ * */
+public class ParseForest {
+	
+	/**
+	 * treeCount of a forest with a cycle, where a node derives itself (A =>+ A) and so has infinitely many trees
+	 * */
+	public static final long INFINITE = -1;
+	
+	int[] symbol;
+	int[] start;
+	int[] end;
+	int[] firstPacked;
+	
+	int[] production;
+	int[] childStart;
+	int[] childCount;
+	int[] nextPacked;
+	
+	int[] children;
+	
+	/**
+	 * property nodeCount , packedCount , childrenSize
+	 * number of symbol nodes, of packed nodes and of used slots in children
+	 * */
+	int nodeCount;
+	int packedCount;
+	int childrenSize;
+	
+	/**
+	 * property root
+	 * symbol node of start symbol over the whole input, -1 if input was not accepted
+	 * */
+	int root = -1;
+	
+	private final ParseTable table;
+	
+	public ParseForest(ParseTable table){
+		this(table , 1024);
+	}
+	
+	/**
+	 * expectedTokens: about how many tokens the input has, so node arrays start big enough
+	 * */
+	public ParseForest(ParseTable table , int expectedTokens){
+		this.table = table;
+		int capacity = Math.max(2 * expectedTokens , 16);
+		this.symbol = new int[capacity];
+		this.start = new int[capacity];
+		this.end = new int[capacity];
+		this.firstPacked = new int[capacity];
+		this.production = new int[capacity];
+		this.childStart = new int[capacity];
+		this.childCount = new int[capacity];
+		this.nextPacked = new int[capacity];
+		this.children = new int[capacity];
+	}
+	
+	/**
+	 * Clear the forest to parse another input
+	 * */
+	void clear(){
+		this.nodeCount = 0;
+		this.packedCount = 0;
+		this.childrenSize = 0;
+		this.root = -1;
+	}
+	
+	/**
+	 * Add a symbol node without packed nodes, return its number
+	 * */
+	int addNode(int symbol , int start , int end){
+		if(this.nodeCount == this.symbol.length) {
+			int capacity = this.nodeCount + (this.nodeCount >> 1);
+			this.symbol = Arrays.copyOf(this.symbol, capacity);
+			this.start = Arrays.copyOf(this.start, capacity);
+			this.end = Arrays.copyOf(this.end, capacity);
+			this.firstPacked = Arrays.copyOf(this.firstPacked, capacity);
+		}
+		int node = this.nodeCount++;
+		this.symbol[node] = symbol;
+		this.start[node] = start;
+		this.end[node] = end;
+		this.firstPacked[node] = -1;
+		return node;
+	}
+	
+	/**
+	 * Add a packed node for production with body kids to node, unless node has the same one already.
+	 * 	kids is copied, so it can be reused by the caller
+	 * */
+	void addPacked(int node , int production , int[] kids){
+		for(int packed = this.firstPacked[node] ; packed >= 0 ; packed = this.nextPacked[packed]){
+			if(this.production[packed] == production && this.sameChildren(packed , kids)) return;
+		}
+		
+		if(this.packedCount == this.production.length) {
+			int capacity = this.packedCount + (this.packedCount >> 1);
+			this.production = Arrays.copyOf(this.production, capacity);
+			this.childStart = Arrays.copyOf(this.childStart, capacity);
+			this.childCount = Arrays.copyOf(this.childCount, capacity);
+			this.nextPacked = Arrays.copyOf(this.nextPacked, capacity);
+		}
+		if(this.childrenSize + kids.length > this.children.length) {
+			this.children = Arrays.copyOf(this.children, Math.max(this.children.length + (this.children.length >> 1)
+					, this.childrenSize + kids.length));
+		}
+		
+		int packed = this.packedCount++;
+		this.production[packed] = production;
+		this.childStart[packed] = this.childrenSize;
+		this.childCount[packed] = kids.length;
+		System.arraycopy(kids, 0, this.children, this.childrenSize, kids.length);
+		this.childrenSize += kids.length;
+		
+		// alternatives stay in the order they were found
+		this.nextPacked[packed] = -1;
+		if(this.firstPacked[node] < 0) {
+			this.firstPacked[node] = packed;
+			return;
+		}
+		int last = this.firstPacked[node];
+		while(this.nextPacked[last] >= 0) last = this.nextPacked[last];
+		this.nextPacked[last] = packed;
+	}
+	
+	private boolean sameChildren(int packed , int[] kids){
+		if(this.childCount[packed] != kids.length) return false;
+		int first = this.childStart[packed];
+		for(int i = 0 ; i < kids.length ; i++){
+			if(this.children[first + i] != kids[i]) return false;
+		}
+		return true;
+	}
+	
+	public int root(){
+		return this.root;
+	}
+	
+	public int nodeCount(){
+		return this.nodeCount;
+	}
+	
+	public int packedCount(){
+		return this.packedCount;
+	}
+	
+	public int symbol(int node){
+		return this.symbol[node];
+	}
+	
+	public String symbolName(int node){
+		return this.table.symbolName(this.symbol[node]);
+	}
+	
+	/**
+	 * position (from 0) of the first token node covers
+	 * */
+	public int start(int node){
+		return this.start[node];
+	}
+	
+	/**
+	 * position (from 0) of the token after the last one node covers
+	 * */
+	public int end(int node){
+		return this.end[node];
+	}
+	
+	/**
+	 * true for a token, which has no packed nodes (a non terminal derived from empty has one, without children)
+	 * */
+	public boolean isLeaf(int node){
+		return this.firstPacked[node] < 0;
+	}
+	
+	/**
+	 * true if node was derived in more than one way
+	 * */
+	public boolean isAmbiguous(int node){
+		return this.firstPacked[node] >= 0 && this.nextPacked[this.firstPacked[node]] >= 0;
+	}
+	
+	public int alternativeCount(int node){
+		int count = 0;
+		for(int packed = this.firstPacked[node] ; packed >= 0 ; packed = this.nextPacked[packed]) count++;
+		return count;
+	}
+	
+	/**
+	 * Packed node number i (from 0) of node, -1 if it has fewer
+	 * */
+	public int alternative(int node , int i){
+		int packed = this.firstPacked[node];
+		while(packed >= 0 && i-- > 0) packed = this.nextPacked[packed];
+		return packed;
+	}
+	
+	public Production production(int packed){
+		return this.table.production(this.production[packed]);
+	}
+	
+	public int childCount(int packed){
+		return this.childCount[packed];
+	}
+	
+	/**
+	 * Symbol node of child number i (from 0) of packed node
+	 * */
+	public int child(int packed , int i){
+		return this.children[this.childStart[packed] + i];
+	}
+	
+	/**
+	 * Number of ambiguous symbol nodes under root
+	 * */
+	public int ambiguousCount(){
+		int[] order = this.postOrder();
+		int count = 0;
+		for(int i = 0 ; i < order.length ; i++){
+			if(this.isAmbiguous(order[i])) count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * function treeCount
+	 * Number of parse trees in the forest, Long.MAX_VALUE if there are more. INFINITE if the forest has a
+	 * 	cycle, 0 if input was not accepted
+	 * */
+	public long treeCount(){
+		if(this.root < 0) return 0;
+		if(this.isCyclic(this.components())) return INFINITE;
+		
+		// children come before their parents in post order, so one pass counts every node
+		int[] order = this.postOrder();
+		long[] trees = new long[this.nodeCount];
+		for(int i = 0 ; i < order.length ; i++){
+			int node = order[i];
+			if(this.isLeaf(node)) {
+				trees[node] = 1;
+				continue;
+			}
+			long sum = 0;
+			for(int packed = this.firstPacked[node] ; packed >= 0 ; packed = this.nextPacked[packed]){
+				long product = 1;
+				for(int j = 0 ; j < this.childCount[packed] ; j++){
+					product = multiply(product , trees[this.child(packed , j)]);
+				}
+				sum = sum + product < 0 ? Long.MAX_VALUE : sum + product;
+			}
+			trees[node] = sum;
+		}
+		return trees[this.root];
+	}
+	
+	private static long multiply(long a , long b){
+		if(a == 0 || b == 0) return 0;
+		if(a > Long.MAX_VALUE / b) return Long.MAX_VALUE;
+		return a * b;
+	}
+	
+	/**
+	 * function isCyclic
+	 * true if some node under root derives itself, then the forest has infinitely many trees
+	 * */
+	public boolean isCyclic(){
+		return this.root >= 0 && this.isCyclic(this.components());
+	}
+	
+	/**
+	 * true if a packed node under root has a child in the strongly connected component of its symbol node
+	 * */
+	private boolean isCyclic(int[] component){
+		for(int node = 0 ; node < this.nodeCount ; node++){
+			if(component[node] < 0) continue;
+			for(int packed = this.firstPacked[node] ; packed >= 0 ; packed = this.nextPacked[packed]){
+				if(this.onCycle(node , packed , component)) return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Strongly connected component of each symbol node reachable from root, -1 for the others (Tarjan's 
+	 * 	algorithm, without recursion). A component is numbered after every component reachable from it, so 
+	 * 	the children of a packed node have a lower number than its symbol node unless they are on a cycle with it
+	 * */
+	private int[] components(){
+		int[] component = new int[this.nodeCount];
+		Arrays.fill(component, -1);
+		if(this.root < 0) return component;
+		
+		int[] index = new int[this.nodeCount];		// 0 not visited yet, else order of visit from 1
+		int[] low = new int[this.nodeCount];
+		int visited = 0;
+		int components = 0;
+		
+		// nodes visited and not in a component yet
+		int[] open = new int[this.nodeCount];
+		int openTop = -1;
+		
+		// path of the search: node, its packed node and the child to look at next
+		int[] pathNode = new int[64];
+		int[] pathPacked = new int[64];
+		int[] pathChild = new int[64];
+		int top = 0;
+		pathNode[0] = this.root;
+		pathPacked[0] = this.firstPacked[this.root];
+		pathChild[0] = 0;
+		index[this.root] = low[this.root] = ++visited;
+		open[++openTop] = this.root;
+		
+		while(top >= 0){
+			int node = pathNode[top];
+			int packed = pathPacked[top];
+			if(packed >= 0 && pathChild[top] == this.childCount[packed]) {
+				pathPacked[top] = this.nextPacked[packed];
+				pathChild[top] = 0;
+				continue;
+			}
+			if(packed >= 0) {
+				int child = this.child(packed , pathChild[top]++);
+				if(index[child] == 0) {
+					index[child] = low[child] = ++visited;
+					open[++openTop] = child;
+					if(++top == pathNode.length) {
+						pathNode = Arrays.copyOf(pathNode, top * 2);
+						pathPacked = Arrays.copyOf(pathPacked, top * 2);
+						pathChild = Arrays.copyOf(pathChild, top * 2);
+					}
+					pathNode[top] = child;
+					pathPacked[top] = this.firstPacked[child];
+					pathChild[top] = 0;
+				} else if(component[child] < 0) {
+					low[node] = Math.min(low[node] , index[child]);		// still open, on a cycle with node
+				}
+				continue;
+			}
+			
+			// every child of node is done
+			if(low[node] == index[node]) {
+				int member;
+				do {
+					member = open[openTop--];
+					component[member] = components;
+				} while(member != node);
+				components++;
+			}
+			top--;
+			if(top >= 0) low[pathNode[top]] = Math.min(low[pathNode[top]] , low[node]);
+		}
+		return component;
+	}
+	
+	/**
+	 * true if a child of packed is in the same component as node, that is the packed node is on a cycle
+	 * */
+	private boolean onCycle(int node , int packed , int[] component){
+		for(int j = 0 ; j < this.childCount[packed] ; j++){
+			if(component[this.child(packed , j)] == component[node]) return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Packed node toParseTree takes for each symbol node, -1 for tokens: the first one not on a cycle, or if
+	 * 	all are the first one whose children all have a finite tree before node has one, see finiteOrder. Either way the children are lower in (component , finite order)
+	 * 	than node, so following the chosen packed nodes always ends at tokens
+	 * */
+	private int[] chosenAlternatives(){
+		int[] chosen = Arrays.copyOf(this.firstPacked, this.nodeCount);
+		int[] component = this.components();
+		if(! this.isCyclic(component)) return chosen;
+		
+		int[] order = this.finiteOrder();
+		for(int node = 0 ; node < this.nodeCount ; node++){
+			if(component[node] < 0 || this.isLeaf(node)) continue;
+			chosen[node] = -1;
+			for(int packed = this.firstPacked[node] ; packed >= 0 && chosen[node] < 0 ; packed = this.nextPacked[packed]){
+				if(! this.onCycle(node , packed , component)) chosen[node] = packed;
+			}
+			for(int packed = this.firstPacked[node] ; packed >= 0 && chosen[node] < 0 ; packed = this.nextPacked[packed]){
+				boolean before = true;
+				for(int j = 0 ; j < this.childCount[packed] && before ; j++){
+					int child = this.child(packed , j);
+					before = order[child] >= 0 && order[child] < order[node];
+				}
+				if(before) chosen[node] = packed;
+			}
+		}
+		return chosen;
+	}
+	
+	/**
+	 * Order in which symbol nodes get a finite tree: tokens first, then a node as soon as all children of one
+	 * 	of its packed nodes have one. -1 for a node that has none
+	 * */
+	private int[] finiteOrder(){
+		int[] order = new int[this.nodeCount];
+		Arrays.fill(order, -1);
+		
+		// packed nodes each symbol node is a child of: uses[useStart[node]] .. uses[useStart[node + 1] - 1]
+		int[] useStart = new int[this.nodeCount + 1];
+		for(int i = 0 ; i < this.childrenSize ; i++) useStart[this.children[i] + 1]++;
+		for(int node = 0 ; node < this.nodeCount ; node++) useStart[node + 1] += useStart[node];
+		int[] uses = new int[this.childrenSize];
+		int[] filled = Arrays.copyOf(useStart, this.nodeCount);
+		int[] owner = new int[this.packedCount];
+		int[] pending = new int[this.packedCount];
+		
+		int[] queue = new int[this.nodeCount];
+		int head = 0;
+		int tail = 0;
+		for(int node = 0 ; node < this.nodeCount ; node++){
+			if(this.isLeaf(node)) {
+				order[node] = tail;
+				queue[tail++] = node;
+			}
+			for(int packed = this.firstPacked[node] ; packed >= 0 ; packed = this.nextPacked[packed]){
+				owner[packed] = node;
+				pending[packed] = this.childCount[packed];
+				for(int j = 0 ; j < this.childCount[packed] ; j++) uses[filled[this.child(packed , j)]++] = packed;
+				if(this.childCount[packed] == 0 && order[node] < 0) {
+					order[node] = tail;
+					queue[tail++] = node;
+				}
+			}
+		}
+		
+		while(head < tail){
+			int node = queue[head++];
+			for(int i = useStart[node] ; i < useStart[node + 1] ; i++){
+				int packed = uses[i];
+				if(--pending[packed] == 0 && order[owner[packed]] < 0) {
+					order[owner[packed]] = tail;
+					queue[tail++] = owner[packed];
+				}
+			}
+		}
+		return order;
+	}
+	
+	/**
+	 * Symbol nodes reachable from root, each after all of its children. Does not recurse
+	 * */
+	private int[] postOrder(){
+		if(this.root < 0) return new int[0];
+		
+		int[] order = new int[this.nodeCount];
+		int size = 0;
+		BitSet expanded = new BitSet(this.nodeCount);
+		
+		// nodes whose children are still to be visited, and ~node once they are. A node can be on stack 
+		// more than once, it is only expanded the first time it comes off
+		int[] stack = new int[64];
+		int top = 0;
+		stack[0] = this.root;
+		
+		while(top >= 0){
+			int entry = stack[top--];
+			if(entry < 0) {
+				order[size++] = ~entry;
+				continue;
+			}
+			if(expanded.get(entry)) continue;
+			expanded.set(entry);
+			if(top + 2 >= stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+			stack[++top] = ~entry;
+			for(int packed = this.firstPacked[entry] ; packed >= 0 ; packed = this.nextPacked[packed]){
+				for(int j = 0 ; j < this.childCount[packed] ; j++){
+					int child = this.child(packed , j);
+					if(expanded.get(child)) continue;
+					if(top + 2 >= stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+					stack[++top] = child;
+				}
+			}
+		}
+		return Arrays.copyOf(order, size);
+	}
+	
+	/**
+	 * function toParseTree
+	 * One of the parse trees, taking the first alternative of every ambiguous node that is not on a cycle 
+	 * 	(see chosenAlternatives). A node shared in the forest is copied for each place it has in the tree
+	 * */
+	public ParseTree toParseTree(){
+		ParseTree tree = new ParseTree(this.table , this.nodeCount);
+		if(this.root < 0) return tree;
+		int[] chosen = this.chosenAlternatives();
+		
+		// forest node and the tree node to add it to as last child (-1 for root)
+		int[] stack = new int[128];
+		int top = -1;
+		int[] lastChild = new int[Math.max(this.nodeCount , 16)];
+		stack[++top] = this.root;
+		stack[++top] = -1;
+		
+		while(top >= 0){
+			int parent = stack[top--];
+			int node = stack[top--];
+			
+			int treeNode = tree.addNode(this.symbol[node] , this.start[node]);
+			if(treeNode == lastChild.length) lastChild = Arrays.copyOf(lastChild, lastChild.length * 2);
+			lastChild[treeNode] = -1;
+			if(parent < 0) tree.root = treeNode;
+			else if(lastChild[parent] < 0) tree.firstChild[parent] = treeNode;
+			else tree.nextSibling[lastChild[parent]] = treeNode;
+			if(parent >= 0) lastChild[parent] = treeNode;
+			
+			int packed = chosen[node];
+			if(packed < 0) continue;
+			
+			// children in reverse, so the first is added first
+			int count = this.childCount[packed];
+			if(top + 2 * count + 2 >= stack.length) stack = Arrays.copyOf(stack, Math.max(stack.length * 2 , top + 2 * count + 3));
+			for(int j = count - 1 ; j >= 0 ; j--){
+				stack[++top] = this.child(packed , j);
+				stack[++top] = treeNode;
+			}
+		}
+		tree.trim();
+		return tree;
+	}
+	
+	/**
+	 * Write every symbol node reachable from root, one per line with its alternatives, children first. e.g.
+	 * 	12 E [0,3) = E :: E + E : 7 3 11 | E :: E * E : 10 6 2
+	 * */
+	public void print(PrintWriter out){
+		int[] order = this.postOrder();
+		for(int i = 0 ; i < order.length ; i++){
+			int node = order[i];
+			out.print(node + " " + this.symbolName(node) + " [" + this.start[node] + "," + this.end[node] + ")");
+			boolean first = true;
+			for(int packed = this.firstPacked[node] ; packed >= 0 ; packed = this.nextPacked[packed]){
+				out.print(first ? " = " : " | ");
+				first = false;
+				out.print(this.production(packed).head + " ::");
+				for(int j = 0 ; j < this.production(packed).body.length ; j++) out.print(" " + this.production(packed).body[j]);
+				out.print(" :");
+				for(int j = 0 ; j < this.childCount[packed] ; j++) out.print(" " + this.child(packed , j));
+			}
+			out.println();
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package parser;
+
+/**
+ * interface ParseListener
+ * Told when each parse starts and ends, in whichever thread runs it
+ * */
+public interface ParseListener {
+	
+	/**
+	 * Return anything to be given back to parseEnded, or null if not interested in this parse
+	 * */
+	Object parseStarted();
+	
+	/**
+	 * tokens: tokens shifted, actions: shifts and reduces taken, state: state on top of stack at the end
+	 * */
+	void parseEnded(Object started , ParseResult result , long tokens , long actions , int state);
+}
@@ -0,0 +1,54 @@
+package parser;
+
+import java.io.PrintWriter;
+
+/**
+ * class ParseMetrics
+ * Counts of the work done by SLRParser, added up over every parse it is given to. 
+ * Parses running at the same time may add to the same metrics
+ * */
+public class ParseMetrics {
+	
+	/**
+	 * property parses
+	 * number of inputs parsed, and how many of them were accepted
+	 * */
+	public long parses;
+	public long accepted;
+	
+	public long shifts;
+	
+	public long reduces;
+	
+	/**
+	 * property maxStackDepth
+	 * most states on stack at once, in any of the parses
+	 * */
+	public int maxStackDepth;
+	
+	/**
+	 * property nanos
+	 * wall time spent inside the parser, including the sink and tracer
+	 * */
+	public long nanos;
+	
+	/**
+	 * Add counts of one parse
+	 * */
+	public synchronized void add(boolean accepted , long shifts , long reduces , int maxStackDepth , long nanos){
+		this.parses++;
+		if(accepted) this.accepted++;
+		this.shifts += shifts;
+		this.reduces += reduces;
+		this.maxStackDepth = Math.max(this.maxStackDepth , maxStackDepth);
+		this.nanos += nanos;
+	}
+	
+	public synchronized void print(PrintWriter out){
+		out.println("parses                " + this.parses + " (" + this.accepted + " accepted)");
+		out.println("shifts                " + this.shifts);
+		out.println("reduces               " + this.reduces);
+		out.println("max stack depth       " + this.maxStackDepth);
+		out.println(String.format("parse time (ms)       %.3f", this.nanos / 1e6));
+	}
+}
@@ -0,0 +1,76 @@
+package parser;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * class ParseResult
+ * Outcome of parsing one input: the actions taken and, if the input was rejected, where
+ * */
+public class ParseResult {
+	
+	/**
+	 * property accepted
+	 * true if the whole input was accepted
+	 * */
+	public final boolean accepted;
+	
+	/**
+	 * property actions
+	 * all the actions taken if accepted, otherwise the actions taken before the error. 
+	 * null if the parser was only asked to recognize the input, or handed actions to a ParseSink
+	 * */
+	public final ArrayList<Action> actions;
+	
+	/**
+	 * property errorOffset
+	 * position(starting from 1) of token at which error was found, -1 if accepted
+	 * */
+	public final int errorOffset;
+	
+	/**
+	 * property errorToken
+	 * token at which error was found, null if accepted or if input ended too early
+	 * */
+	public final String errorToken;
+	
+	/**
+	 * property errors
+	 * every syntax error found, in input order. Empty if accepted, only the first one unless the parser 
+	 * 	recovered from errors (SLRParser.recognizeAll). errorOffset and errorToken are those of the first
+	 * */
+	public final List<SyntaxError> errors;
+	
+	public ParseResult(ArrayList<Action> actions){
+		this.accepted = true;
+		this.actions = actions;
+		this.errorOffset = -1;
+		this.errorToken = null;
+		this.errors = Collections.emptyList();
+	}
+	
+	public ParseResult(ArrayList<Action> actions , int errorOffset , String errorToken){
+		this(actions , Collections.singletonList(new SyntaxError(errorOffset , errorToken , -1)));
+	}
+	
+	/**
+	 * Result of a rejected input with all its errors, errors must not be empty
+	 * */
+	public ParseResult(ArrayList<Action> actions , List<SyntaxError> errors){
+		this.accepted = false;
+		this.actions = actions;
+		this.errorOffset = errors.get(0).errorOffset;
+		this.errorToken = errors.get(0).errorToken;
+		this.errors = errors;
+	}
+	
+	/**
+	 * function toException
+	 * the error of a rejected input as ParseException
+	 * */
+	public ParseException toException(){
+		return new ParseException("Error in parsing string" , this.errorOffset);
+	}
+}
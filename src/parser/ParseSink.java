@@ -0,0 +1,37 @@
+package parser;
+
+import grammar.Production;
+
+/**
+ * interface ParseSink
+ * Receives the actions of SLRParser while it parses, so output can be written as it is produced 
+ * 	instead of keeping every action until the end
+ * */
+public interface ParseSink {
+	
+	/**
+	 * function onShift
+	 * token was shifted and state_no pushed to stack
+	 * */
+	void onShift(int state_no , String token);
+	
+	/**
+	 * function onReduce
+	 * body of production on top of stack was reduced to its head, index is the number of production in the
+	 * 	parse table (the one a REDUCE code holds), it stays right for this table even after the grammar is updated
+	 * */
+	void onReduce(int index , Production production);
+	
+	/**
+	 * function onAccept
+	 * input was accepted, this is the last call
+	 * */
+	void onAccept();
+	
+	/**
+	 * function onError
+	 * no action for token at errorOffset(starting from 1), token is null if input ended too early. 
+	 * 	This is the last call
+	 * */
+	void onError(int errorOffset , String token);
+}
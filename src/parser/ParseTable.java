@@ -0,0 +1,616 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import grammar.Grammar;
+import grammar.NonTerminal;
+import grammar.Production;
+import grammar.State;
+import grammar.Symbol;
+import grammar.SymbolTable;
+
+/**
+ * class ParseTable
+ * SLR Table of a grammar compiled into flat int arrays, to be used by the parse loop.
+ * Every symbol gets an int id (column) and every state number is a row. Each cell holds 
+ * 	one packed action code: the action type in the low bits, the target state or production 
+ * 	index in the rest.
+ * 
+ * A table is either dense (one full row for each state) or compressed by compress(): each state 
+ * 	gets a default REDUCE for the cells that are not stored, and the remaining cells of all rows are 
+ * 	overlapped in one array (row displacement), with a check array telling which state owns a slot.
+ * 	pack() overlaps the rows the same way but keeps every cell, that is the form of table files.
+ * 
+ * Cells where the grammar has a conflict hold one of its actions (the one SLR_TABLE kept), all of them 
+ * 	are kept aside for GLRParser, see actions.
+ * */
+public class ParseTable {
+	
+	/** action types, as stored in the low bits of an action code */
+	public static final int ERROR = 0;
+	public static final int SHIFT = 1;
+	public static final int REDUCE = 2;
+	public static final int ACCEPT = 3;
+	public static final int GOTO = 4;
+	
+	private static final int TYPE_BITS = 3;
+	private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+	
+	/**
+	 * property table
+	 * packed action codes, indexed by [state_no][symbol id]. null for a compressed table
+	 * */
+	private final int[][] table;
+	
+	/**
+	 * property base , next , check , defaults
+	 * compressed table, null for a dense one. Action of state s on symbol x is next[base[s] + x] if 
+	 * 	check[base[s] + x] is s, otherwise defaults[s] (a REDUCE or ERROR)
+	 * */
+	private final int[] base;
+	private final int[] next;
+	private final int[] check;
+	private final int[] defaults;
+	
+	/**
+	 * property symbolIds
+	 * maps name of a symbol to its column in table
+	 * */
+	private final Map<String , Integer> symbolIds;
+	
+	/**
+	 * property symbolNames
+	 * name of symbol for each column
+	 * */
+	private final String[] symbolNames;
+	
+	/**
+	 * property productions
+	 * productions of the grammar, indexed by production index used in REDUCE codes
+	 * */
+	private final Production[] productions;
+	
+	/**
+	 * property reduceLength , reduceHead
+	 * number of symbols in body and symbol id of head, for each production
+	 * */
+	private final int[] reduceLength;
+	private final int[] reduceHead;
+	
+	/**
+	 * property follow
+	 * FOLLOW SET of each non terminal as symbol ids, indexed by symbol id (null for terminals). 
+	 * 	null if not known
+	 * */
+	private final BitSet[] follow;
+	
+	/**
+	 * property recoveryTokens
+	 * for each state, tokens on which the parser can go on after an error by pretending a non terminal with 
+	 * 	a GOTO from that state was read, see recoveryGoto. Built when first needed
+	 * */
+	private volatile BitSet[] recoveryTokens;
+	
+	/**
+	 * property conflicts
+	 * every action code of each cell with a conflict, keyed by state_no * symbol count + symbol id. 
+	 * 	conflictStates tells which states have such a cell, so others need no look up
+	 * */
+	private final Map<Long , int[]> conflicts;
+	private final boolean[] conflictStates;
+	
+	/**
+	 * One shared Action object for each possible action code, so action lists can be built 
+	 * 	without creating a new Action on every step
+	 * */
+	private final Action[] shiftActions;
+	private final Action[] gotoActions;
+	private final Action[] reduceActions;
+	private final Action acceptAction = new Action(ACTION_TYPE.ACCEPT);
+	
+	/**
+	 * Create a table from its parts: action codes by [state_no][symbol id], name of each symbol 
+	 * 	and productions by their number (with headId and bodyIds set)
+	 * */
+	ParseTable(int[][] table , String[] symbolNames , Production[] productions , BitSet[] follow 
+			, Map<Long , int[]> conflicts){
+		this(table , null , null , null , null , symbolNames , productions , follow , conflicts);
+	}
+	
+	/**
+	 * Create a compressed table from its parts, see property base
+	 * */
+	ParseTable(int[] base , int[] next , int[] check , int[] defaults , String[] symbolNames , Production[] productions 
+			, BitSet[] follow , Map<Long , int[]> conflicts){
+		this(null , base , next , check , defaults , symbolNames , productions , follow , conflicts);
+	}
+	
+	private ParseTable(int[][] table , int[] base , int[] next , int[] check , int[] defaults 
+			, String[] symbolNames , Production[] productions , BitSet[] follow , Map<Long , int[]> conflicts){
+		this.table = table;
+		this.base = base;
+		this.next = next;
+		this.check = check;
+		this.defaults = defaults;
+		this.symbolNames = symbolNames;
+		this.productions = productions;
+		this.follow = follow;
+		this.conflicts = conflicts;
+		
+		this.symbolIds = new HashMap<String , Integer>();
+		for(int i = 0 ; i < symbolNames.length ; i++){
+			this.symbolIds.put(symbolNames[i], i);
+		}
+		
+		this.reduceLength = new int[productions.length];
+		this.reduceHead = new int[productions.length];
+		this.reduceActions = new Action[productions.length];
+		for(int i = 0 ; i < productions.length ; i++){
+			this.reduceLength[i] = productions[i].body.length;
+			this.reduceHead[i] = productions[i].headId;
+			this.reduceActions[i] = new Action(ACTION_TYPE.REDUCE);
+			this.reduceActions[i].reduceProduction = productions[i];
+		}
+		
+		int stateCount = table != null ? table.length : base.length;
+		this.conflictStates = new boolean[stateCount];
+		for(Long cell : conflicts.keySet()) this.conflictStates[(int) (cell / symbolNames.length)] = true;
+		
+		this.shiftActions = new Action[stateCount];
+		this.gotoActions = new Action[stateCount];
+		for(int i = 0 ; i < stateCount ; i++){
+			this.shiftActions[i] = new Action(ACTION_TYPE.SHIFT);
+			this.shiftActions[i].state_no = i;
+			this.gotoActions[i] = new Action(ACTION_TYPE.GOTO);
+			this.gotoActions[i].state_no = i;
+		}
+	}
+	
+	/**
+	 * function compile
+	 * Build a ParseTable from SLR_TABLE of all the states of grammar
+	 * */
+	public static ParseTable compile(Grammar grammar){
+		ArrayList<State> states = grammar.getStates();
+		
+		// columns are symbol ids of the grammar
+		SymbolTable symbolTable = grammar.getSymbolTable();
+		String[] symbolNames = new String[symbolTable.size()];
+		BitSet[] follow = new BitSet[symbolTable.size()];
+		for(int i = 0 ; i < symbolNames.length ; i++){
+			Symbol symbol = symbolTable.get(i);
+			symbolNames[i] = symbol.name;
+			if(symbol instanceof NonTerminal) {
+				BitSet bits = ((NonTerminal) symbol).FOLLOW_BITS;
+				follow[i] = bits != null ? (BitSet) bits.clone() : new BitSet();
+			}
+		}
+		
+		int maxStateNo = -1;
+		for(State state:states){
+			if(state.state_no > maxStateNo) maxStateNo = state.state_no;
+		}
+		
+		int[][] table = new int[maxStateNo + 1][symbolNames.length];
+		HashMap<Long , int[]> conflicts = new HashMap<Long , int[]>();
+		
+		for(State state:states){
+			int[] row = table[state.state_no];
+			
+			for(Map.Entry<String, Action> pair : state.SLR_TABLE.entrySet()){
+				if(pair.getKey() == null) continue;		// no token can ever match this column
+				row[symbolTable.idOf(pair.getKey())] = encode(pair.getValue());
+			}
+			
+			for(Map.Entry<String, ArrayList<Action>> pair : state.CONFLICTS.entrySet()){
+				if(pair.getKey() == null) continue;
+				ArrayList<Action> actions = pair.getValue();
+				int[] codes = new int[actions.size()];
+				for(int i = 0 ; i < codes.length ; i++) codes[i] = encode(actions.get(i));
+				conflicts.put((long) state.state_no * symbolNames.length + symbolTable.idOf(pair.getKey()), codes);
+			}
+		}
+		
+		// production index of a REDUCE code is number of production in grammar at this time. The table keeps its own
+		// array of them, after Grammar.update the grammar has another one and the same index can be another production
+		return new ParseTable(table , symbolNames , grammar.getProductions().clone() , follow , conflicts);
+	}
+	
+	/**
+	 * packed action code of an Action of SLR_TABLE
+	 * */
+	private static int encode(Action action){
+		switch(action.type){
+		case SHIFT: return encode(SHIFT , action.state_no);
+		case GOTO: return encode(GOTO , action.state_no);
+		case ACCEPT: return encode(ACCEPT , 0);
+		case REDUCE: return encode(REDUCE , action.reduceProduction.number);
+		default: return ERROR;
+		}
+	}
+	
+	/**
+	 * function encode
+	 * pack an action type and its state number / production index into one int
+	 * */
+	public static int encode(int type , int value){
+		return (value << TYPE_BITS) | type;
+	}
+	
+	/**
+	 * function type
+	 * action type of a packed action code
+	 * */
+	public static int type(int code){
+		return code & TYPE_MASK;
+	}
+	
+	/**
+	 * function value
+	 * target state (SHIFT , GOTO) or production index (REDUCE) of a packed action code
+	 * */
+	public static int value(int code){
+		return code >>> TYPE_BITS;
+	}
+	
+	/**
+	 * function action
+	 * Given a state number and a symbol id, get packed action code. ERROR if there is none
+	 * */
+	public int action(int state_no , int symbol){
+		if(symbol < 0) return ERROR;
+		if(this.table != null) return this.table[state_no][symbol];
+		
+		int index = this.base[state_no] + symbol;
+		if(this.check[index] == state_no) return this.next[index];
+		return this.defaults[state_no];
+	}
+	
+	/**
+	 * function explicitAction
+	 * like action, but ERROR instead of the default REDUCE of a compressed table
+	 * */
+	public int explicitAction(int state_no , int symbol){
+		if(symbol < 0) return ERROR;
+		if(this.table != null) return this.table[state_no][symbol];
+		
+		int index = this.base[state_no] + symbol;
+		if(this.check[index] == state_no) return this.next[index];
+		return ERROR;
+	}
+	
+	/**
+	 * function defaultAction
+	 * the default REDUCE of a state in a compressed table, ERROR if it has none or table is dense
+	 * */
+	public int defaultAction(int state_no){
+		if(this.defaults == null) return ERROR;
+		return this.defaults[state_no];
+	}
+	
+	public boolean isCompressed(){
+		return this.table == null;
+	}
+	
+	/**
+	 * base , next , check and defaults arrays of a compressed table, for writing it to a file
+	 * */
+	int[][] compressedArrays(){
+		return new int[][] { this.base , this.next , this.check , this.defaults };
+	}
+	
+	/**
+	 * function compress
+	 * Compressed copy of this dense table.
+	 * In each row the REDUCE found most often among the terminals becomes the default action of 
+	 * 	that state and its cells are dropped (on a token with no action the parser then reduces before 
+	 * 	finding the error, it never shifts it). The remaining cells of each row are placed at the 
+	 * 	lowest offset(base) where they don't collide with cells of rows already placed, biggest rows first.
+	 * 
+	 * What default reductions change about errors:
+	 * 	- the same inputs are accepted, and an error is found at the same token as with the dense table, 
+	 * 	as only shifts move to the next token;
+	 * 	- the state left on top of stack at the error (SyntaxError.state_no) is the one reached by the 
+	 * 	default reductions, so SyntaxError.expected lists the tokens of that state, which may be fewer;
+	 * 	- recovery of SLRParser.recognizeAll starts from that stack, so errors after the first one may be 
+	 * 	found at other tokens, or not at all.
+	 * Main and table files use the dense table (or pack()), which keeps the state of the error.
+	 * */
+	public ParseTable compress(){
+		return this.compress(true);
+	}
+	
+	/**
+	 * function pack
+	 * Copy of this dense table in the compressed form, but with no default actions: every cell keeps
+	 * 	its action, so the parser finds errors in the same state as with the dense table
+	 * */
+	ParseTable pack(){
+		return this.compress(false);
+	}
+	
+	private ParseTable compress(boolean defaultReductions){
+		if(this.table == null) return this;
+		
+		int stateCount = this.table.length;
+		int symbolCount = this.symbolNames.length;
+		
+		int[] defaults = new int[stateCount];
+		int[][] rowSymbols = new int[stateCount][];
+		Integer[] order = new Integer[stateCount];
+		
+		for(int state = 0 ; state < stateCount ; state++){
+			int[] row = this.table[state];
+			defaults[state] = defaultReductions ? mostCommonReduce(row) : ERROR;
+			
+			int entries = 0;
+			for(int symbol = 0 ; symbol < symbolCount ; symbol++){
+				if(row[symbol] != ERROR && row[symbol] != defaults[state]) entries++;
+			}
+			rowSymbols[state] = new int[entries];
+			entries = 0;
+			for(int symbol = 0 ; symbol < symbolCount ; symbol++){
+				if(row[symbol] != ERROR && row[symbol] != defaults[state]) rowSymbols[state][entries++] = symbol;
+			}
+			order[state] = state;
+		}
+		
+		// biggest rows first, they are the hardest to fit
+		final int[][] sizes = rowSymbols;
+		Arrays.sort(order, new Comparator<Integer>(){
+			@Override
+			public int compare(Integer a , Integer b){
+				return sizes[b].length - sizes[a].length;
+			}
+		});
+		
+		int[] base = new int[stateCount];
+		int capacity = stateCount + symbolCount;
+		int[] next = new int[capacity];
+		int[] check = new int[capacity];
+		Arrays.fill(check, -1);
+		int used = 0;		// slots up to this one may be taken
+		int firstFree = 0;	// no free slot before this one
+		
+		for(int k = 0 ; k < stateCount ; k++){
+			int state = order[k];
+			int[] symbols = rowSymbols[state];
+			if(symbols.length == 0) continue;	// base 0, check never matches
+			
+			int offset = Math.max(0 , firstFree - symbols[0]);
+			PLACE:
+			for(;; offset++){
+				for(int i = 0 ; i < symbols.length ; i++){
+					int slot = offset + symbols[i];
+					if(slot < capacity && check[slot] != -1) continue PLACE;
+				}
+				break;
+			}
+			
+			int needed = offset + symbolCount;
+			if(needed > capacity) {
+				int newCapacity = Math.max(needed , capacity * 2);
+				next = Arrays.copyOf(next, newCapacity);
+				check = Arrays.copyOf(check, newCapacity);
+				Arrays.fill(check, capacity, newCapacity, -1);
+				capacity = newCapacity;
+			}
+			
+			base[state] = offset;
+			for(int i = 0 ; i < symbols.length ; i++){
+				next[offset + symbols[i]] = this.table[state][symbols[i]];
+				check[offset + symbols[i]] = state;
+			}
+			used = Math.max(used , offset + symbolCount);
+			while(firstFree < capacity && check[firstFree] != -1) firstFree++;
+		}
+		
+		// every base + symbol id must be inside the arrays
+		for(int state = 0 ; state < stateCount ; state++) used = Math.max(used , base[state] + symbolCount);
+		next = Arrays.copyOf(next, used);
+		check = Arrays.copyOf(check, used);
+		
+		return new ParseTable(base , next , check , defaults , this.symbolNames , this.productions , this.follow 
+				, this.conflicts);
+	}
+	
+	/**
+	 * REDUCE code used most in a row, ERROR if there is no REDUCE in it
+	 * */
+	private static int mostCommonReduce(int[] row){
+		HashMap<Integer , Integer> counts = new HashMap<Integer , Integer>();
+		int best = ERROR;
+		int bestCount = 0;
+		for(int symbol = 0 ; symbol < row.length ; symbol++){
+			if(type(row[symbol]) != REDUCE) continue;
+			Integer count = counts.get(row[symbol]);
+			count = count == null ? 1 : count + 1;
+			counts.put(row[symbol], count);
+			if(count > bestCount) {
+				best = row[symbol];
+				bestCount = count;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * function conflictCount
+	 * number of cells with more than one action, inputs need GLRParser to get every parse if it is not 0
+	 * */
+	public int conflictCount(){
+		return this.conflicts.size();
+	}
+	
+	/**
+	 * function hasConflicts
+	 * true if some cell of state_no has more than one action
+	 * */
+	public boolean hasConflicts(int state_no){
+		return this.conflictStates[state_no];
+	}
+	
+	/**
+	 * function actions
+	 * every action code of a cell with more than one action, null for any other cell (use action)
+	 * */
+	public int[] actions(int state_no , int symbol){
+		if(! this.conflictStates[state_no] || symbol < 0) return null;
+		return this.conflicts.get((long) state_no * this.symbolNames.length + symbol);
+	}
+	
+	/**
+	 * cells with more than one action, for writing the table to a file
+	 * */
+	Map<Long , int[]> conflictCells(){
+		return this.conflicts;
+	}
+	
+	/**
+	 * function follows
+	 * true if terminal symbol is in FOLLOW SET of nonTerminal. Always true if FOLLOW SETs are not known
+	 * */
+	public boolean follows(int nonTerminal , int symbol){
+		if(this.follow == null) return true;
+		return this.follow[nonTerminal] != null && this.follow[nonTerminal].get(symbol);
+	}
+	
+	/**
+	 * FOLLOW SETs by symbol id, for writing the table to a file. null if not known
+	 * */
+	BitSet[] followSets(){
+		return this.follow;
+	}
+	
+	/**
+	 * function recoveryGoto
+	 * Panic mode recovery: state to push after an error, when state_no is left on top of stack and symbol is 
+	 * 	next token. That is GOTO of state_no on a non terminal A such that symbol is in FOLLOW SET of A and the 
+	 * 	state GOTO leads to has an action on symbol, as if A had been read. -1 if there is no such A
+	 * */
+	public int recoveryGoto(int state_no , int symbol){
+		if(symbol < 0 || ! this.recoveryTokens()[state_no].get(symbol)) return -1;
+		for(int i = 0 ; i < this.symbolNames.length ; i++){
+			int code = this.explicitAction(state_no , i);
+			if(type(code) != GOTO) continue;
+			if(this.follows(i , symbol) && this.action(value(code) , symbol) != ERROR) return value(code);
+		}
+		return -1;
+	}
+	
+	/**
+	 * function recoveryTokens
+	 * tokens on which recoveryGoto finds a state, for each state
+	 * */
+	BitSet[] recoveryTokens(){
+		BitSet[] tokens = this.recoveryTokens;
+		if(tokens != null) return tokens;
+		
+		// terminals are the symbols which are not head of a production
+		boolean[] nonTerminal = new boolean[this.symbolNames.length];
+		for(int i = 0 ; i < this.productions.length ; i++) nonTerminal[this.reduceHead[i]] = true;
+		
+		int stateCount = this.stateCount();
+		tokens = new BitSet[stateCount];
+		for(int state = 0 ; state < stateCount ; state++){
+			tokens[state] = new BitSet();
+			for(int head = 0 ; head < this.symbolNames.length ; head++){
+				int code = this.explicitAction(state , head);
+				if(type(code) != GOTO) continue;
+				for(int symbol = 0 ; symbol < this.symbolNames.length ; symbol++){
+					if(! nonTerminal[symbol] && this.follows(head , symbol) && this.action(value(code) , symbol) != ERROR) {
+						tokens[state].set(symbol);
+					}
+				}
+			}
+		}
+		this.recoveryTokens = tokens;	// same result if two threads build it at once
+		return tokens;
+	}
+	
+	/**
+	 * function sizeInBytes
+	 * memory taken by action codes of this table (ints only)
+	 * */
+	public long sizeInBytes(){
+		if(this.table != null) return 4L * this.table.length * this.symbolNames.length;
+		return 4L * (this.base.length + this.defaults.length + this.next.length + this.check.length);
+	}
+	
+	/**
+	 * function compressionReport
+	 * size of this table compared to dense table with the same number of states and symbols
+	 * */
+	public String compressionReport(){
+		long dense = 4L * this.stateCount() * this.symbolNames.length;
+		long size = this.sizeInBytes();
+		return "states: " + this.stateCount() + ", symbols: " + this.symbolNames.length
+				+ ", dense: " + dense + " bytes, this table: " + size + " bytes"
+				+ ", ratio: " + String.format("%.2f", size == 0 ? 1.0 : (double) dense / size) + "x";
+	}
+	
+	/**
+	 * function symbolId
+	 * id of a symbol by its name, -1 if this symbol is not used in table
+	 * */
+	public int symbolId(String name){
+		Integer id = this.symbolIds.get(name);
+		if(id == null) return -1;
+		return id;
+	}
+	
+	public String symbolName(int symbol){
+		return this.symbolNames[symbol];
+	}
+	
+	public Production production(int index){
+		return this.productions[index];
+	}
+	
+	/**
+	 * function reduceLength
+	 * number of states to pop when reducing production with this index
+	 * */
+	public int reduceLength(int index){
+		return this.reduceLength[index];
+	}
+	
+	/**
+	 * function reduceHead
+	 * symbol id of head of production with this index
+	 * */
+	public int reduceHead(int index){
+		return this.reduceHead[index];
+	}
+	
+	/**
+	 * function toAction
+	 * Shared Action object for a packed action code, null for ERROR
+	 * */
+	public Action toAction(int code){
+		switch(type(code)){
+		case SHIFT: return this.shiftActions[value(code)];
+		case GOTO: return this.gotoActions[value(code)];
+		case REDUCE: return this.reduceActions[value(code)];
+		case ACCEPT: return this.acceptAction;
+		default: return null;
+		}
+	}
+	
+	public int stateCount(){
+		return this.table != null ? this.table.length : this.base.length;
+	}
+	
+	public int symbolCount(){
+		return this.symbolNames.length;
+	}
+	
+	public int productionCount(){
+		return this.productions.length;
+	}
+}
@@ -0,0 +1,168 @@
+package parser;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import grammar.Production;
+
+/**
+ * class ParseTableFile
+ * Binary file format for a compiled ParseTable, so a parser can start without building the Grammar.
+ * 
+ * All numbers are big endian ints:
+ * 	magic , version
+ * 	symbol count , then for each symbol: name length , name (UTF-8 bytes)
+ * 	production count , then for each production: head id , body length , body ids
+ * 	for each symbol: size of its FOLLOW SET (0 for terminals) , then symbol ids in it
+ * 	number of cells with a conflict , then for each: state , symbol id , number of actions , action codes
+ * 	state count , base and default action of each state , slot count , next and check of each slot
+ * 
+ * Action codes are kept in the compressed form of ParseTable, a dense table is written packed with no
+ * 	default actions (see ParseTable.pack) and read back as such, it acts the same on every cell. 
+ * 	Files of any other version are rejected.
+ * */
+public class ParseTableFile {
+	
+	public static final int MAGIC = 0x534C5254;		// "SLRT"
+	public static final int VERSION = 5;
+	
+	/**
+	 * function write
+	 * write table to a file
+	 * */
+	public static void write(ParseTable table , String filename) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			
+			out.writeInt(table.symbolCount());
+			for(int i = 0 ; i < table.symbolCount() ; i++){
+				byte[] name = table.symbolName(i).getBytes(StandardCharsets.UTF_8);
+				out.writeInt(name.length);
+				out.write(name);
+			}
+			
+			out.writeInt(table.productionCount());
+			for(int i = 0 ; i < table.productionCount() ; i++){
+				Production production = table.production(i);
+				out.writeInt(production.headId);
+				out.writeInt(production.bodyIds.length);
+				for(int j = 0 ; j < production.bodyIds.length ; j++) out.writeInt(production.bodyIds[j]);
+			}
+			
+			BitSet[] follow = table.followSets();
+			for(int i = 0 ; i < table.symbolCount() ; i++){
+				BitSet set = follow != null ? follow[i] : null;
+				out.writeInt(set != null ? set.cardinality() : 0);
+				if(set == null) continue;
+				for(int j = set.nextSetBit(0) ; j >= 0 ; j = set.nextSetBit(j + 1)) out.writeInt(j);
+			}
+			
+			Map<Long , int[]> conflicts = table.conflictCells();
+			out.writeInt(conflicts.size());
+			for(Map.Entry<Long , int[]> cell : conflicts.entrySet()){
+				out.writeInt((int) (cell.getKey() / table.symbolCount()));
+				out.writeInt((int) (cell.getKey() % table.symbolCount()));
+				out.writeInt(cell.getValue().length);
+				for(int i = 0 ; i < cell.getValue().length ; i++) out.writeInt(cell.getValue()[i]);
+			}
+			
+			int[][] arrays = table.pack().compressedArrays();
+			int[] base = arrays[0] , next = arrays[1] , check = arrays[2] , defaults = arrays[3];
+			out.writeInt(base.length);
+			for(int state = 0 ; state < base.length ; state++){
+				out.writeInt(base[state]);
+				out.writeInt(defaults[state]);
+			}
+			out.writeInt(next.length);
+			for(int i = 0 ; i < next.length ; i++){
+				out.writeInt(next[i]);
+				out.writeInt(check[i]);
+			}
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * function load
+	 * read a table written by write, mapping the file into memory
+	 * */
+	public static ParseTable load(String filename) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		try {
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			
+			if(in.getInt() != MAGIC) throw new IOException(filename + " is not a parse table file");
+			int version = in.getInt();
+			if(version != VERSION) throw new IOException("Unsupported parse table version " + version + ", expected " + VERSION);
+			
+			String[] symbolNames = new String[in.getInt()];
+			for(int i = 0 ; i < symbolNames.length ; i++){
+				byte[] name = new byte[in.getInt()];
+				in.get(name);
+				symbolNames[i] = new String(name , StandardCharsets.UTF_8);
+			}
+			
+			Production[] productions = new Production[in.getInt()];
+			for(int i = 0 ; i < productions.length ; i++){
+				int headId = in.getInt();
+				int[] bodyIds = new int[in.getInt()];
+				String[] body = new String[bodyIds.length];
+				for(int j = 0 ; j < bodyIds.length ; j++){
+					bodyIds[j] = in.getInt();
+					body[j] = symbolNames[bodyIds[j]];
+				}
+				
+				Production production = new Production(symbolNames[headId] , body);
+				production.headId = headId;
+				production.bodyIds = bodyIds;
+				production.number = i;
+				productions[i] = production;
+			}
+			
+			BitSet[] follow = new BitSet[symbolNames.length];
+			for(int i = 0 ; i < productions.length ; i++) follow[productions[i].headId] = new BitSet();
+			for(int i = 0 ; i < symbolNames.length ; i++){
+				int size = in.getInt();
+				for(int j = 0 ; j < size ; j++) follow[i].set(in.getInt());
+			}
+			
+			HashMap<Long , int[]> conflicts = new HashMap<Long , int[]>();
+			int cells = in.getInt();
+			for(int i = 0 ; i < cells ; i++){
+				long cell = (long) in.getInt() * symbolNames.length + in.getInt();
+				int[] codes = new int[in.getInt()];
+				for(int j = 0 ; j < codes.length ; j++) codes[j] = in.getInt();
+				conflicts.put(cell, codes);
+			}
+			
+			int[] base = new int[in.getInt()];
+			int[] defaults = new int[base.length];
+			for(int state = 0 ; state < base.length ; state++){
+				base[state] = in.getInt();
+				defaults[state] = in.getInt();
+			}
+			int[] next = new int[in.getInt()];
+			int[] check = new int[next.length];
+			for(int i = 0 ; i < next.length ; i++){
+				next[i] = in.getInt();
+				check[i] = in.getInt();
+			}
+			return new ParseTable(base , next , check , defaults , symbolNames , productions , follow , conflicts);
+		} finally {
+			channel.close();
+		}
+	}
+}
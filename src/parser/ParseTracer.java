@@ -0,0 +1,17 @@
+package parser;
+
+/**
+ * interface ParseTracer
+ * Listener for every step of SLRParser. A parser without a tracer does no tracing work at all
+ * */
+public interface ParseTracer {
+	
+	/**
+	 * function step
+	 * called before the parser takes an action.
+	 * stack holds state numbers from bottom to top, only the first depth of them are on stack. 
+	 * 	It is the parser's own stack, so it must not be kept or changed.
+	 * inputIndex is position of lookahead token in input (starting from 0)
+	 * */
+	void step(int[] stack , int depth , int inputIndex , String lookahead , Action action);
+}
@@ -0,0 +1,181 @@
+package parser;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * class ParseTree
+ * A parse tree kept in parallel int arrays instead of an object for every node: for node n,
+ * 	symbol[n] is its symbol id in the ParseTable, firstChild[n] and nextSibling[n] are node numbers (-1 for none),
+ * 	tokenIndex[n] is the position (from 0) of its token for a leaf, or of the first token it covers otherwise.
+ * That is 16 bytes a node, and a tree has between one and a few nodes for each token.
+ * Built by ParseTreeBuilder
+ * */
+public class ParseTree {
+	
+	int[] symbol;
+	int[] firstChild;
+	int[] nextSibling;
+	int[] tokenIndex;
+	
+	/**
+	 * property size
+	 * number of nodes
+	 * */
+	int size;
+	
+	/**
+	 * property root
+	 * node of start symbol, -1 if input was not accepted
+	 * */
+	int root = -1;
+	
+	private final ParseTable table;
+	
+	/**
+	 * Symbols which are head of some production, indexed by symbol id
+	 * */
+	private final boolean[] nonTerminal;
+	
+	ParseTree(ParseTable table , int capacity){
+		this.table = table;
+		capacity = Math.max(capacity , 16);
+		this.symbol = new int[capacity];
+		this.firstChild = new int[capacity];
+		this.nextSibling = new int[capacity];
+		this.tokenIndex = new int[capacity];
+		
+		this.nonTerminal = new boolean[table.symbolCount()];
+		for(int i = 0 ; i < table.productionCount() ; i++) this.nonTerminal[table.reduceHead(i)] = true;
+	}
+	
+	/**
+	 * Add a node without children or siblings, return its number
+	 * */
+	int addNode(int symbol , int tokenIndex){
+		if(this.size == this.symbol.length) {
+			resize(this.size + (this.size >> 1));
+		}
+		int node = this.size++;
+		this.symbol[node] = symbol;
+		this.firstChild[node] = -1;
+		this.nextSibling[node] = -1;
+		this.tokenIndex[node] = tokenIndex;
+		return node;
+	}
+	
+	/**
+	 * Drop the room left in node arrays, once no node will be added
+	 * */
+	void trim(){
+		if(this.size < this.symbol.length) resize(Math.max(this.size , 1));
+	}
+	
+	private void resize(int capacity){
+		this.symbol = Arrays.copyOf(this.symbol, capacity);
+		this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+		this.nextSibling = Arrays.copyOf(this.nextSibling, capacity);
+		this.tokenIndex = Arrays.copyOf(this.tokenIndex, capacity);
+	}
+	
+	public int root(){
+		return this.root;
+	}
+	
+	public int size(){
+		return this.size;
+	}
+	
+	public int symbol(int node){
+		return this.symbol[node];
+	}
+	
+	public String symbolName(int node){
+		return this.table.symbolName(this.symbol[node]);
+	}
+	
+	public int firstChild(int node){
+		return this.firstChild[node];
+	}
+	
+	public int nextSibling(int node){
+		return this.nextSibling[node];
+	}
+	
+	public int tokenIndex(int node){
+		return this.tokenIndex[node];
+	}
+	
+	/**
+	 * true for a token, false for a non terminal (even one derived from empty, which has no children)
+	 * */
+	public boolean isLeaf(int node){
+		return ! this.nonTerminal[this.symbol[node]];
+	}
+	
+	public int childCount(int node){
+		int count = 0;
+		for(int child = this.firstChild[node] ; child >= 0 ; child = this.nextSibling[child]) count++;
+		return count;
+	}
+	
+	/**
+	 * Child number i (from 0) of node, -1 if it has fewer children
+	 * */
+	public int child(int node , int i){
+		int child = this.firstChild[node];
+		while(child >= 0 && i-- > 0) child = this.nextSibling[child];
+		return child;
+	}
+	
+	/**
+	 * Memory taken by the node arrays, in bytes
+	 * */
+	public long sizeInBytes(){
+		return 4L * 4 * this.symbol.length;
+	}
+	
+	/**
+	 * Write the tree as it is walked, in bracketed form: (head child child ..) for a non terminal,
+	 * 	its name for a token. e.g. (E (E (T (F id))) + (T (F id))).
+	 * Does not recurse, so trees of any depth can be printed
+	 * */
+	public void print(PrintWriter out){
+		if(this.root < 0) return;
+		
+		// nodes still to be written, and ~node for the bracket closing node
+		int[] stack = new int[64];
+		int top = 0;
+		stack[0] = this.root;
+		boolean first = true;
+		
+		while(top >= 0){
+			int entry = stack[top--];
+			if(entry < 0) {
+				out.print(')');
+				continue;
+			}
+			
+			if(! first) out.print(' ');
+			first = false;
+			if(this.isLeaf(entry)) {
+				out.print(this.symbolName(entry));
+				continue;
+			}
+			out.print('(');
+			out.print(this.symbolName(entry));
+			
+			// closing bracket goes under the children, children go in reverse so the first is on top
+			int children = this.childCount(entry);
+			if(top + children + 2 >= stack.length) stack = Arrays.copyOf(stack, Math.max(stack.length * 2 , top + children + 3));
+			stack[++top] = ~entry;
+			int child = this.firstChild[entry];
+			for(int i = children ; i > 0 ; i--){
+				stack[top + i] = child;
+				child = this.nextSibling[child];
+			}
+			top += children;
+		}
+		out.println();
+	}
+}
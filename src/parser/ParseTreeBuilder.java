@@ -0,0 +1,82 @@
+package parser;
+
+import java.util.Arrays;
+
+import grammar.Production;
+
+/**
+ * class ParseTreeBuilder
+ * Builds a ParseTree from the shifts and reduces of SLRParser: a shift adds a leaf, a reduce adds a node
+ * 	for the head and makes the nodes on top of its stack (one for each symbol in body) its children.
+ * 	new SLRParser(table).parse(input , builder) then builder.getTree()
+ * */
+public class ParseTreeBuilder implements ParseSink {
+	
+	private final ParseTable table;
+	
+	private final ParseTree tree;
+	
+	/**
+	 * Nodes not yet given a parent, one for each state on the stack of the parser above state 0
+	 * */
+	private int[] nodeStack = new int[64];
+	private int top = -1;
+	
+	/**
+	 * Position of the next token
+	 * */
+	private int tokenIndex;
+	
+	public ParseTreeBuilder(ParseTable table){
+		this(table , 1024);
+	}
+	
+	/**
+	 * expectedTokens: about how many tokens the input has, so node arrays start big enough
+	 * */
+	public ParseTreeBuilder(ParseTable table , int expectedTokens){
+		this.table = table;
+		this.tree = new ParseTree(table , 2 * expectedTokens);	// most grammars make 2 to 3 nodes a token
+	}
+	
+	@Override
+	public void onShift(int state_no , String token){
+		push(this.tree.addNode(this.table.symbolId(token) , this.tokenIndex++));
+	}
+	
+	@Override
+	public void onReduce(int index , Production production){
+		ParseTree tree = this.tree;
+		int length = production.bodyIds.length;
+		int first = this.top - length + 1;
+		
+		int node = tree.addNode(production.headId , length > 0 ? tree.tokenIndex[this.nodeStack[first]] : this.tokenIndex);
+		if(length > 0) {
+			tree.firstChild[node] = this.nodeStack[first];
+			for(int i = first ; i < this.top ; i++) tree.nextSibling[this.nodeStack[i]] = this.nodeStack[i + 1];
+		}
+		this.top = first - 1;
+		push(node);
+	}
+	
+	@Override
+	public void onAccept(){
+		this.tree.root = this.nodeStack[this.top];
+		this.tree.trim();
+	}
+	
+	@Override
+	public void onError(int errorOffset , String token){}
+	
+	private void push(int node){
+		if(++this.top == this.nodeStack.length) this.nodeStack = Arrays.copyOf(this.nodeStack, this.nodeStack.length * 2);
+		this.nodeStack[this.top] = node;
+	}
+	
+	/**
+	 * The tree, whose root is -1 unless the input was accepted
+	 * */
+	public ParseTree getTree(){
+		return this.tree;
+	}
+}
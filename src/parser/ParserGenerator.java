@@ -0,0 +1,224 @@
+package parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import grammar.Production;
+
+/**
+ * class ParserGenerator
+ * Writes Java source of a stand alone parser for one ParseTable. State dispatch of the generated parser 
+ * 	is compiled into switch statements over int symbol ids, it has no dependency on this project.
+ * 
+ * Generated class has:
+ * 	symbolId(String) : id of a token, -1 if it is not a symbol of the grammar
+ * 	parse(String[] , Listener) / parse(int[] , int , Listener) : -1 if accepted, otherwise position(starting from 1) 
+ * 		of token at which error was found. Listener gets same SHIFT, REDUCE and ACCEPT actions as SLRParser would take
+ * 	PRODUCTIONS : text of each production, indexed by production number given to Listener.reduce
+ * */
+public class ParserGenerator {
+	
+	// most cases put in one switch of generated code, a method of a JVM class can have at most 64KB of code
+	private static final int CHUNK = 256;
+	
+	public static void generate(ParseTable table , String className , String filename) throws IOException{
+		File file = new File(filename);
+		file.createNewFile();
+		PrintWriter out = new PrintWriter (file);
+		generate(table , null , className , out);
+		out.close();
+	}
+	
+	/**
+	 * function generate
+	 * write source of class className to out, in package packageName (no package declaration if null)
+	 * */
+	public static void generate(ParseTable table , String packageName , String className , PrintWriter out){
+		if(packageName != null) {
+			out.println("package " + packageName + ";");
+			out.println();
+		}
+		
+		out.println("/**");
+		out.println(" * Generated SLR parser. Do not edit.");
+		out.println(" * */");
+		out.println("public class " + className + " {");
+		out.println();
+		
+		out.println("\tpublic interface Listener {");
+		out.println("\t\tvoid shift(int state_no);");
+		out.println("\t\tvoid reduce(int production);");
+		out.println("\t\tvoid accept();");
+		out.println("\t}");
+		out.println();
+		
+		out.println("\tprivate static final int SHIFT = " + ParseTable.SHIFT + ";");
+		out.println("\tprivate static final int REDUCE = " + ParseTable.REDUCE + ";");
+		out.println("\tprivate static final int ACCEPT = " + ParseTable.ACCEPT + ";");
+		out.println("\tprivate static final int GOTO = " + ParseTable.GOTO + ";");
+		out.println();
+		
+		// productions
+		out.println("\tpublic static final String[] PRODUCTIONS = {");
+		for(int i = 0 ; i < table.productionCount() ; i++){
+			Production production = table.production(i);
+			out.println("\t\t\"" + escape(production.head + ":: " + Production.bodyToString(production.body)) + "\",");
+		}
+		out.println("\t};");
+		out.println();
+		
+		out.println("\tprivate static final int[] REDUCE_LENGTH = {" + joinReduce(table , true) + "};");
+		out.println("\tprivate static final int[] REDUCE_HEAD = {" + joinReduce(table , false) + "};");
+		out.println();
+		
+		// symbol ids, split by hash of token into methods of at most about CHUNK cases, one switch over every 
+		// symbol of a big grammar is more code than a method may have
+		int symbolChunks = (table.symbolCount() + CHUNK - 1) / CHUNK;
+		out.println("\tpublic static int symbolId(String token){");
+		out.println("\t\tif(token == null) return -1;");
+		if(symbolChunks <= 1) printSymbolSwitch(table , 1 , 0 , out);
+		else {
+			out.println("\t\tswitch((token.hashCode() & 0x7FFFFFFF) % " + symbolChunks + "){");
+			for(int chunk = 0 ; chunk < symbolChunks ; chunk++){
+				out.println("\t\tcase " + chunk + ": return symbolId" + chunk + "(token);");
+			}
+			out.println("\t\tdefault: return -1;");
+			out.println("\t\t}");
+		}
+		out.println("\t}");
+		out.println();
+		
+		for(int chunk = 0 ; symbolChunks > 1 && chunk < symbolChunks ; chunk++){
+			out.println("\tprivate static int symbolId" + chunk + "(String token){");
+			printSymbolSwitch(table , symbolChunks , chunk , out);
+			out.println("\t}");
+			out.println();
+		}
+		
+		// state dispatch, one method for each state to keep methods small, and one method for each CHUNK states
+		// when there are more of them
+		int stateChunks = (table.stateCount() + CHUNK - 1) / CHUNK;
+		out.println("\tprivate static int action(int state_no , int symbol){");
+		if(stateChunks <= 1) printStateSwitch(table , 0 , out);
+		else {
+			out.println("\t\tswitch(state_no / " + CHUNK + "){");
+			for(int chunk = 0 ; chunk < stateChunks ; chunk++){
+				out.println("\t\tcase " + chunk + ": return action" + chunk + "(state_no , symbol);");
+			}
+			out.println("\t\tdefault: return 0;");
+			out.println("\t\t}");
+		}
+		out.println("\t}");
+		
+		for(int chunk = 0 ; stateChunks > 1 && chunk < stateChunks ; chunk++){
+			out.println();
+			out.println("\tprivate static int action" + chunk + "(int state_no , int symbol){");
+			printStateSwitch(table , chunk , out);
+			out.println("\t}");
+		}
+		
+		for(int state = 0 ; state < table.stateCount() ; state++){
+			out.println();
+			out.println("\tprivate static int state" + state + "(int symbol){");
+			out.println("\t\tswitch(symbol){");
+			for(int symbol = 0 ; symbol < table.symbolCount() ; symbol++){
+				int code = table.explicitAction(state , symbol);
+				if(code != ParseTable.ERROR) out.println("\t\tcase " + symbol + ": return " + code + ";");
+			}
+			out.println("\t\tdefault: return " + table.defaultAction(state) + ";");
+			out.println("\t\t}");
+			out.println("\t}");
+		}
+		out.println();
+		
+		// the parse loop
+		out.println("\tpublic static int parse(String[] tokens , Listener listener){");
+		out.println("\t\tint[] symbols = new int[tokens.length];");
+		out.println("\t\tfor(int i = 0 ; i < tokens.length ; i++) symbols[i] = symbolId(tokens[i]);");
+		out.println("\t\treturn parse(symbols , symbols.length , listener);");
+		out.println("\t}");
+		out.println();
+		out.println("\tpublic static int parse(int[] symbols , int length , Listener listener){");
+		out.println("\t\tint[] stack = new int[64];");
+		out.println("\t\tint top = 0;");
+		out.println("\t\tint index = 0;");
+		out.println("\t\twhile(index < length){");
+		out.println("\t\t\tif(symbols[index] < 0) return index + 1;");
+		out.println("\t\t\tint code = action(stack[top] , symbols[index]);");
+		out.println("\t\t\tswitch(code & 7){");
+		out.println("\t\t\tcase SHIFT:");
+		out.println("\t\t\t\tif(++top == stack.length) stack = java.util.Arrays.copyOf(stack, stack.length * 2);");
+		out.println("\t\t\t\tstack[top] = code >>> 3;");
+		out.println("\t\t\t\tif(listener != null) listener.shift(stack[top]);");
+		out.println("\t\t\t\tindex++;");
+		out.println("\t\t\t\tbreak;");
+		out.println("\t\t\tcase REDUCE:");
+		out.println("\t\t\t\tint production = code >>> 3;");
+		out.println("\t\t\t\ttop -= REDUCE_LENGTH[production];");
+		out.println("\t\t\t\tint inCode = action(stack[top] , REDUCE_HEAD[production]);");
+		out.println("\t\t\t\tif((inCode & 7) != GOTO) return index + 1;");
+		out.println("\t\t\t\tif(++top == stack.length) stack = java.util.Arrays.copyOf(stack, stack.length * 2);");
+		out.println("\t\t\t\tstack[top] = inCode >>> 3;");
+		out.println("\t\t\t\tif(listener != null) listener.reduce(production);");
+		out.println("\t\t\t\tbreak;");
+		out.println("\t\t\tcase ACCEPT:");
+		out.println("\t\t\t\tif(listener != null) listener.accept();");
+		out.println("\t\t\t\treturn -1;");
+		out.println("\t\t\tdefault:");
+		out.println("\t\t\t\treturn index + 1;");
+		out.println("\t\t\t}");
+		out.println("\t\t}");
+		out.println("\t\treturn index + 1;");
+		out.println("\t}");
+		out.println("}");
+	}
+	
+	/**
+	 * switch of symbolId for symbols whose name hashes to chunk out of chunks
+	 * */
+	private static void printSymbolSwitch(ParseTable table , int chunks , int chunk , PrintWriter out){
+		out.println("\t\tswitch(token){");
+		for(int i = 0 ; i < table.symbolCount() ; i++){
+			if((table.symbolName(i).hashCode() & 0x7FFFFFFF) % chunks != chunk) continue;
+			out.println("\t\tcase \"" + escape(table.symbolName(i)) + "\": return " + i + ";");
+		}
+		out.println("\t\tdefault: return -1;");
+		out.println("\t\t}");
+	}
+	
+	/**
+	 * switch calling the method of each state from chunk * CHUNK up to next chunk
+	 * */
+	private static void printStateSwitch(ParseTable table , int chunk , PrintWriter out){
+		out.println("\t\tswitch(state_no){");
+		for(int state = chunk * CHUNK ; state < table.stateCount() && state < (chunk + 1) * CHUNK ; state++){
+			out.println("\t\tcase " + state + ": return state" + state + "(symbol);");
+		}
+		out.println("\t\tdefault: return 0;");
+		out.println("\t\t}");
+	}
+	
+	private static String joinReduce(ParseTable table , boolean length){
+		StringBuilder list = new StringBuilder();
+		for(int i = 0 ; i < table.productionCount() ; i++){
+			if(i > 0) list.append(", ");
+			list.append(length ? table.reduceLength(i) : table.reduceHead(i));
+		}
+		return list.toString();
+	}
+	
+	/**
+	 * escape a string to be put inside a Java string literal
+	 * */
+	private static String escape(String value){
+		StringBuilder escaped = new StringBuilder();
+		for(int i = 0 ; i < value.length() ; i++){
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\') escaped.append('\\').append(c);
+			else if(c < 0x20 || c > 0x7E) escaped.append(String.format("\\u%04x", (int) c));
+			else escaped.append(c);
+		}
+		return escaped.toString();
+	}
+}
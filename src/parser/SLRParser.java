@@ -1,140 +1,302 @@
 package parser;
 
+import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.BitSet;
 
 import grammar.Grammar;
-import grammar.Production;
-import grammar.State;
 
 /**
  * class SLRParser
- * Represents SLR parser as a machine
+ * Represents SLR parser as a machine.
+ * A parser only holds the (immutable) ParseTable it runs on, everything about one parse lives inside 
+ * 	parse(). So one SLRParser, or many of them on the same table, can parse in any number of threads at once.
  * */
 public class SLRParser {
 	
-		
-	private static Map<Integer , Integer> state_indices = new HashMap<Integer , Integer>();
+	private static final int INITIAL_STACK_SIZE = 64;
+	
+	/**
+	 * Tokens to shift after a recovery before errors are reported again, so that errors caused by the 
+	 * 	recovery itself (e.g. resuming in the middle of a statement) are not reported
+	 * */
+	private static final int RECOVERED_AFTER = 3;
+	
+	/**
+	 * States from top of stack where recovery first looks for one to go on from, so that a token which 
+	 * 	could only go on from deep in the stack (e.g. a stray keyword inside an expression) is dropped 
+	 * 	rather than throwing away everything above that state
+	 * */
+	private static final int RECOVERY_WINDOW = 4;
+	
+	private final ParseTable table;
+	
+	/**
+	 * property tracer
+	 * told about every step when not null
+	 * */
+	private final ParseTracer tracer;
 	
-	private static ArrayList<State> stateList;
+	/**
+	 * property metrics
+	 * counts of every parse are added to it when not null
+	 * */
+	private final ParseMetrics metrics;
+	
+	private static volatile ParseListener parseListener;
+	
+	public SLRParser(ParseTable table){
+		this(table , null);
+	}
+	
+	public SLRParser(ParseTable table , ParseTracer tracer){
+		this(table , tracer , null);
+	}
+	
+	public SLRParser(ParseTable table , ParseTracer tracer , ParseMetrics metrics){
+		this.table = table;
+		this.tracer = tracer;
+		this.metrics = metrics;
+	}
+	
+	public SLRParser(Grammar grammar){
+		this(grammar.getParseTable());
+	}
 	
-	public static ArrayList<Action> dead;
+	/**
+	 * Told about every parse by any parser, e.g. to record it. null for none
+	 * */
+	public static void setParseListener(ParseListener listener){
+		parseListener = listener;
+	}
 	
+	/**
+	 * Parse a list of tokens. Throws ParseException if the tokens don't follow the grammar
+	 * */
 	public static ArrayList<Action> parse(Grammar grammar , ArrayList<String> string) throws ParseException{
-		
-		stateList = grammar.getStates();
-		setIndices();
-		int input_index = 0;
-		ArrayList<Action> actionList = new ArrayList<Action>();
-		Stack<Integer> state_stack = new Stack<Integer>();
-		state_stack.push(0);		//put state 0 to the top of stack
+		ParseResult result = new SLRParser(grammar).parse(string);
+		if(! result.accepted) throw result.toException();
+		return result.actions;
+	}
+	
+	/**
+	 * Parse a list of tokens, the result tells if they were accepted
+	 * */
+	public ParseResult parse(ArrayList<String> string){
+		ActionListSink sink = new ActionListSink(this.table);
+		return withActions(runOnList(string , sink) , sink);
+	}
+	
+	/**
+	 * Parse tokens pulled one by one from input
+	 * */
+	public ParseResult parse(TokenSource input) throws IOException {
+		ActionListSink sink = new ActionListSink(this.table);
+		return withActions(run(input , sink , false) , sink);
+	}
+	
+	/**
+	 * Parse tokens pulled one by one from input, handing every action to sink instead of keeping them. 
+	 * Memory used depends only on depth of stack, not length of input
+	 * */
+	public ParseResult parse(TokenSource input , ParseSink sink) throws IOException {
+		return run(input , sink , false);
+	}
+	
+	/**
+	 * Only check if a list of tokens follows the grammar, without keeping the actions. 
+	 * Apart from the result and growing the stack, this allocates nothing
+	 * */
+	public ParseResult recognize(ArrayList<String> string){
+		return runOnList(string , null);
+	}
+	
+	/**
+	 * Only check if tokens pulled from input follow the grammar, without keeping the actions
+	 * */
+	public ParseResult recognize(TokenSource input) throws IOException {
+		return run(input , null , false);
+	}
+	
+	/**
+	 * Check a list of tokens, reporting every syntax error instead of stopping at the first one
+	 * */
+	public ParseResult recognizeAll(ArrayList<String> string){
 		try {
-			PARSER_MACHINE:
-				for(;;){ // forever
-					// get action for current state on top of stack and next symbol
-					Action action = getAction(state_stack.peek() , string.get(input_index) );
-					trace(action , state_stack , string , input_index);
-					switch(action.type){
-					case SHIFT:	// if action is shift, push the state for that action to stack
-						state_stack.push(action.state_no);
-						input_index++;
-						break;
-					case REDUCE:
-						/** if reduce, pop as many states from stack as many symbols in body inside 
-						 * 	production associated with that reduce , and then find GOTO for state NOW 
-						 * 	on top of stack and head of that production. Push the result to stack
-						 * */
-						int noOfSymbolsInBody = action.reduceProduction.body.length;
-						for(int i = 1 ; i <= noOfSymbolsInBody ; i++){
-							state_stack.pop();
-						}
-						
-						Action inAction = getAction(state_stack.peek() , action.reduceProduction.head);
-						if(inAction.type == ACTION_TYPE.GOTO){
-							state_stack.push(inAction.state_no);
-						} else break PARSER_MACHINE; // shuold never be the case
-						break;
-					case ACCEPT:
-						actionList.add(action);
-						break PARSER_MACHINE;
-					case GOTO:
-						// never the case
-					}
-					actionList.add(action);
-				}
-		} catch (Exception e){
-			dead = actionList;
-			throw new ParseException("Error in parsing string" , input_index + 1);
+			return run(new ListTokenSource(string) , null , true);
+		} catch (IOException e) {		// never the case, list is in memory
+			throw new IllegalStateException(e);
 		}
-		return actionList;
-		
 	}
 	
-	private static void trace(Action action, Stack<Integer> state_stack , ArrayList<String> input , int index){
-		
-		String act = "";
-		switch(action.type){
-		case ACCEPT:
-			act = "ACCEPT";
-			break;
-		case GOTO:
-			act = "GOTO " + action.state_no;
-			break;
-		case REDUCE:
-			act = "REDUCE " +  action.reduceProduction.head +":: " +Production.bodyToString(action.reduceProduction.body);
-			break;
-		case SHIFT:
-			act = "SHIFT";
-			break;
+	/**
+	 * Check tokens pulled from input in one pass, reporting every syntax error in result.errors. 
+	 * 	After an error the parser recovers in panic mode: it drops tokens until one that can follow a non 
+	 * 	terminal with a GOTO from some state on the stack (see ParseTable.recoveryGoto), pops the stack down to 
+	 * 	that state and goes on as if the non terminal had been read. States near top of stack are preferred, 
+	 * 	see RECOVERY_WINDOW. An error found before RECOVERED_AFTER tokens were shifted since the last recovery 
+	 * 	is not reported, and if none was shifted the token at the error is dropped, so the parse always gets 
+	 * 	further and ends after one pass over the input
+	 * */
+	public ParseResult recognizeAll(TokenSource input) throws IOException {
+		return run(input , null , true);
+	}
+	
+	private ParseResult runOnList(ArrayList<String> string , ParseSink sink){
+		try {
+			return run(new ListTokenSource(string) , sink , false);
+		} catch (IOException e) {		// never the case, list is in memory
+			throw new IllegalStateException(e);
 		}
+	}
+	
+	private static ParseResult withActions(ParseResult result , ActionListSink sink){
+		if(result.accepted) return new ParseResult(sink.getActions());
+		return new ParseResult(sink.getActions() , result.errors);
+	}
+	
+	/**
+	 * The parse loop. Actions are handed to sink unless it is null. 
+	 * 	If recover, errors don't stop the parse, see recognizeAll
+	 * */
+	private ParseResult run(TokenSource input , ParseSink sink , boolean recover) throws IOException {
+		final ParseTable table = this.table;
+		final long startTime = this.metrics != null ? System.nanoTime() : 0;
+		final ParseListener listener = parseListener;
+		final Object started = listener != null ? listener.parseStarted() : null;
 		
-		/**
-		 * remaing input
-		 * */
-		StringBuilder remInput = new StringBuilder();
+		boolean accepted = false;
+		long reduces = 0;
+		int maxTop = 0;
 		
-		for(int i = index ; i < input.size() ; i++){
-			remInput = remInput.append(input.get(i)).append(' ');
-		}
+		ArrayList<SyntaxError> errors = recover ? new ArrayList<SyntaxError>() : null;	// kept only when recovering
+		int shifted = RECOVERED_AFTER;		// tokens shifted since last recovery, up to RECOVERED_AFTER
 		
-		/**
-		 * stack trace
-		 * */
-		StringBuilder stackTrace = new StringBuilder();
+		int input_index = 0;
+		String lookahead = input.next();
+		int symbol = table.symbolId(lookahead);
 		
-		for (Integer stateNo : state_stack){
-			stackTrace.append(stateNo).append(' ');
+		int[] state_stack = new int[INITIAL_STACK_SIZE];
+		int top = 0;
+		state_stack[0] = 0;		//put state 0 to the top of stack
+		
+		PARSER_MACHINE:
+			for(;;){ // forever
+				if(lookahead == null) {		// input ended before ACCEPT
+					if(recover && shifted == RECOVERED_AFTER) errors.add(new SyntaxError(input_index + 1 , null , state_stack[top]));
+					break PARSER_MACHINE;
+				}
+				
+				// get action for current state on top of stack and next symbol
+				int code = table.action(state_stack[top] , symbol);
+				if(code == ParseTable.ERROR || ParseTable.type(code) == ParseTable.GOTO) {	// no entry in SLR Table, or lookahead is name of a non terminal
+					if(! recover) break PARSER_MACHINE;
+					if(shifted == RECOVERED_AFTER) errors.add(new SyntaxError(input_index + 1 , lookahead , state_stack[top]));
+					else if(shifted == 0) {		// recovering here again would not get any further
+						input_index++;
+						lookahead = input.next();
+						symbol = table.symbolId(lookahead);
+					}
+					shifted = 0;
+					
+					// the state nearest to top which goes on with lookahead, among the top window states. Every token 
+					// dropped doubles window, once it covers the stack tokens no state can go on with are dropped at once
+					BitSet[] recoveryTokens = table.recoveryTokens();
+					BitSet sync = null;
+					int window = RECOVERY_WINDOW;
+					int target = -1;
+					while(lookahead != null){
+						if(symbol >= 0 && (sync == null || sync.get(symbol))) {
+							int bottom = Math.max(0 , top - window + 1);
+							for(int k = top ; k >= bottom && target < 0 ; k--){
+								if(recoveryTokens[state_stack[k]].get(symbol)) target = k;
+							}
+							if(target >= 0) break;
+						}
+						if(window <= top) window *= 2;
+						else if(sync == null) sync = syncTokens(state_stack , top);
+						input_index++;
+						lookahead = input.next();
+						symbol = table.symbolId(lookahead);
+					}
+					if(lookahead == null) break PARSER_MACHINE;
+					
+					top = target + 1;
+					if(top == state_stack.length) state_stack = Arrays.copyOf(state_stack, state_stack.length * 2);
+					state_stack[top] = table.recoveryGoto(state_stack[target] , symbol);
+					continue PARSER_MACHINE;
+				}
+				if(this.tracer != null) trace(code , state_stack , top , input_index , lookahead);
+				switch(ParseTable.type(code)){
+				case ParseTable.SHIFT:	// if action is shift, push the state for that action to stack
+					if(++top == state_stack.length) state_stack = Arrays.copyOf(state_stack, state_stack.length * 2);
+					state_stack[top] = ParseTable.value(code);
+					if(top > maxTop) maxTop = top;
+					if(sink != null) sink.onShift(state_stack[top] , lookahead);
+					if(shifted < RECOVERED_AFTER) shifted++;
+					input_index++;
+					lookahead = input.next();
+					symbol = table.symbolId(lookahead);
+					break;
+				case ParseTable.REDUCE:
+					/** if reduce, pop as many states from stack as many symbols in body inside 
+					 * 	production associated with that reduce , and then find GOTO for state NOW 
+					 * 	on top of stack and head of that production. Push the result to stack
+					 * */
+					int production = ParseTable.value(code);
+					top -= table.reduceLength(production);
+					
+					int inCode = table.action(state_stack[top] , table.reduceHead(production));
+					if(ParseTable.type(inCode) == ParseTable.GOTO){
+						if(++top == state_stack.length) state_stack = Arrays.copyOf(state_stack, state_stack.length * 2);
+						state_stack[top] = ParseTable.value(inCode);
+					} else break PARSER_MACHINE; // shuold never be the case
+					reduces++;
+					if(sink != null) sink.onReduce(production , table.production(production));
+					break;
+				case ParseTable.ACCEPT:
+					accepted = errors == null || errors.isEmpty();
+					if(accepted && sink != null) sink.onAccept();
+					break PARSER_MACHINE;
+				}
+			}
+		
+		if(! accepted && (errors == null || errors.isEmpty())) {
+			errors = new ArrayList<SyntaxError>(1);
+			errors.add(new SyntaxError(input_index + 1 , lookahead , state_stack[top]));
 		}
+		if(! accepted && sink != null) sink.onError(errors.get(0).errorOffset , errors.get(0).errorToken);
 		
-		System.out.println(  stackTrace.toString() + "    " + remInput.toString() +  "    " + act);
-	}
-	
-	/**
-	 * Given a state number and a symbol, get Action 
-	 * */
-	private static Action getAction(int state_no , String symbol){
-		State state = getState(state_no);
-		return state.SLR_TABLE.get(symbol);
+		// every shift takes one token, so shifts are the tokens read before ACCEPT or error (tokens dropped after errors included)
+		if(this.metrics != null) this.metrics.add(accepted , input_index , reduces , maxTop + 1 , System.nanoTime() - startTime);
+		
+		ParseResult result = accepted ? new ParseResult(null) : new ParseResult(null , errors);
+		if(started != null) listener.parseEnded(started , result , input_index , input_index + reduces , state_stack[top]);
+		return result;
 	}
 	
 	/**
-	 * Set Indices to make search in global list faster
+	 * Tokens on which some state on the stack can recover, each distinct state counted once
 	 * */
-	private static void setIndices(){
-		int index = 0;
-		for(State state:stateList){
-			state_indices.put(state.state_no, index++);
+	private BitSet syncTokens(int[] state_stack , int top){
+		BitSet[] recoveryTokens = this.table.recoveryTokens();
+		BitSet sync = new BitSet();
+		BitSet seen = new BitSet();
+		for(int i = top ; i >= 0 ; i--){
+			if(seen.get(state_stack[i])) continue;
+			seen.set(state_stack[i]);
+			sync.or(recoveryTokens[state_stack[i]]);
 		}
+		return sync;
 	}
 	
 	/**
-	 * Search for State in global 'stateList'
+	 * Hand current step to tracer
 	 * */
-	private static State getState(int state_no){
-		return stateList.get(state_indices.get(state_no));
+	private void trace(int code , int[] state_stack , int top , int index , String lookahead){
+		this.tracer.step(state_stack , top + 1 , index , lookahead , this.table.toAction(code));
 	}
 	
 }
@@ -0,0 +1,55 @@
+package parser;
+
+import java.util.ArrayList;
+
+/**
+ * class SyntaxError
+ * One place where a token did not follow the grammar
+ * */
+public class SyntaxError {
+	
+	/**
+	 * property errorOffset
+	 * position(starting from 1) of token at which error was found
+	 * */
+	public final int errorOffset;
+	
+	/**
+	 * property errorToken
+	 * token at which error was found, null if input ended too early
+	 * */
+	public final String errorToken;
+	
+	/**
+	 * property state_no
+	 * state on top of stack, which has no action on errorToken. -1 if not known. With a compressed table 
+	 * 	that is the state after its default reductions, see ParseTable.compress
+	 * */
+	public final int state_no;
+	
+	public SyntaxError(int errorOffset , String errorToken , int state_no){
+		this.errorOffset = errorOffset;
+		this.errorToken = errorToken;
+		this.state_no = state_no;
+	}
+	
+	/**
+	 * function expected
+	 * tokens which have an action in state_no of table, i.e. could have come instead of errorToken. 
+	 * 	Empty if state_no is not known
+	 * */
+	public ArrayList<String> expected(ParseTable table){
+		ArrayList<String> expected = new ArrayList<String>();
+		if(this.state_no < 0) return expected;
+		for(int symbol = 0 ; symbol < table.symbolCount() ; symbol++){
+			int type = ParseTable.type(table.explicitAction(this.state_no , symbol));
+			if(type == ParseTable.SHIFT || type == ParseTable.REDUCE || type == ParseTable.ACCEPT) expected.add(table.symbolName(symbol));
+		}
+		return expected;
+	}
+	
+	@Override
+	public String toString(){
+		return "at " + this.errorOffset + (this.errorToken != null ? " (" + this.errorToken + ")" : " (end of input)");
+	}
+}
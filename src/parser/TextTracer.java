@@ -0,0 +1,68 @@
+package parser;
+
+import java.io.PrintStream;
+import java.util.List;
+
+import grammar.Production;
+
+/**
+ * class TextTracer
+ * Prints every step of the parser as one line: the stack, the remaining input and the action
+ * */
+public class TextTracer implements ParseTracer {
+	
+	private final PrintStream out;
+	
+	/**
+	 * property input
+	 * tokens being parsed, to print remaining input. If null only the lookahead is printed
+	 * */
+	private final List<String> input;
+	
+	public TextTracer(PrintStream out , List<String> input){
+		this.out = out;
+		this.input = input;
+	}
+	
+	@Override
+	public void step(int[] stack , int depth , int inputIndex , String lookahead , Action action){
+		
+		String act = "";
+		switch(action.type){
+		case ACCEPT:
+			act = "ACCEPT";
+			break;
+		case GOTO:
+			act = "GOTO " + action.state_no;
+			break;
+		case REDUCE:
+			act = "REDUCE " +  action.reduceProduction.head +":: " +Production.bodyToString(action.reduceProduction.body);
+			break;
+		case SHIFT:
+			act = "SHIFT";
+			break;
+		}
+		
+		/**
+		 * remaing input
+		 * */
+		StringBuilder remInput = new StringBuilder();
+		
+		if(this.input != null) {
+			for(int i = inputIndex ; i < this.input.size() ; i++){
+				remInput = remInput.append(this.input.get(i)).append(' ');
+			}
+		} else remInput.append(lookahead).append(" ...");
+		
+		/**
+		 * stack trace
+		 * */
+		StringBuilder stackTrace = new StringBuilder();
+		
+		for (int i = 0 ; i < depth ; i++){
+			stackTrace.append(stack[i]).append(' ');
+		}
+		
+		this.out.println(  stackTrace.toString() + "    " + remInput.toString() +  "    " + act);
+	}
+}
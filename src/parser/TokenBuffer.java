@@ -0,0 +1,128 @@
+package parser;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * class TokenBuffer
+ * Tokens of IncrementalParser in a gap buffer: one array with its free room (the gap) at the place of the last
+ * 	edit, so an edit moves only the tokens between it and the last one, plus the tokens it removes and inserts.
+ * Keeps for each token the leaf node of it in the tree of IncrementalParser, -1 if it has none
+ * */
+public class TokenBuffer extends AbstractList<String> {
+	
+	private String[] tokens;
+	private int[] leaves;
+	
+	/**
+	 * The gap is gapStart .. gapEnd (not included) of the arrays
+	 * */
+	private int gapStart;
+	private int gapEnd;
+	
+	public TokenBuffer(List<String> tokens){
+		int capacity = Math.max(16 , tokens.size() + (tokens.size() >> 1));
+		this.tokens = new String[capacity];
+		this.leaves = new int[capacity];
+		for(int i = 0 ; i < tokens.size() ; i++) this.tokens[i] = tokens.get(i);
+		Arrays.fill(this.leaves, -1);
+		this.gapStart = tokens.size();
+		this.gapEnd = capacity;
+	}
+	
+	@Override
+	public String get(int index){
+		return this.tokens[this.slot(index)];
+	}
+	
+	@Override
+	public int size(){
+		return this.tokens.length - (this.gapEnd - this.gapStart);
+	}
+	
+	/**
+	 * Leaf node of token at index, -1 if none
+	 * */
+	int leaf(int index){
+		return this.leaves[this.slot(index)];
+	}
+	
+	void setLeaf(int index , int node){
+		this.leaves[this.slot(index)] = node;
+	}
+	
+	/**
+	 * Replace removed tokens from start with inserted ones, which have no leaf
+	 * */
+	void replace(int start , int removed , List<String> inserted){
+		if(start < 0 || removed < 0 || start + removed > this.size()) {
+			throw new IndexOutOfBoundsException("Replace " + start + " + " + removed + " outside " + this.size() + " tokens");
+		}
+		this.moveGap(start);
+		for(int i = this.gapEnd ; i < this.gapEnd + removed ; i++) this.tokens[i] = null;
+		this.gapEnd += removed;
+		
+		if(this.gapEnd - this.gapStart < inserted.size()) this.grow(inserted.size());
+		for(int i = 0 ; i < inserted.size() ; i++){
+			this.tokens[this.gapStart] = inserted.get(i);
+			this.leaves[this.gapStart] = -1;
+			this.gapStart++;
+		}
+		this.modCount++;
+	}
+	
+	/**
+	 * Give every leaf its number in moved, after IncrementalParser dropped dead nodes. Leaves of tokens after
+	 * 	the end of the tree may be left from an older one, those are dropped
+	 * */
+	void renumberLeaves(int[] moved){
+		for(int i = 0 ; i < this.leaves.length ; i++){
+			if(this.leaves[i] >= 0) this.leaves[i] = this.leaves[i] < moved.length ? moved[this.leaves[i]] : -1;
+		}
+	}
+	
+	private int slot(int index){
+		if(index < 0 || index >= this.size()) throw new IndexOutOfBoundsException("Token " + index + " of " + this.size());
+		return index < this.gapStart ? index : index + this.gapEnd - this.gapStart;
+	}
+	
+	/**
+	 * Move the gap so it starts at position
+	 * */
+	private void moveGap(int position){
+		if(position < this.gapStart) {
+			int count = this.gapStart - position;
+			System.arraycopy(this.tokens, position, this.tokens, this.gapEnd - count, count);
+			System.arraycopy(this.leaves, position, this.leaves, this.gapEnd - count, count);
+			Arrays.fill(this.tokens, position, Math.min(this.gapStart , this.gapEnd - count), null);
+			this.gapStart -= count;
+			this.gapEnd -= count;
+		} else if(position > this.gapStart) {
+			int count = position - this.gapStart;
+			System.arraycopy(this.tokens, this.gapEnd, this.tokens, this.gapStart, count);
+			System.arraycopy(this.leaves, this.gapEnd, this.leaves, this.gapStart, count);
+			Arrays.fill(this.tokens, Math.max(this.gapEnd , this.gapStart + count), this.gapEnd + count, null);
+			this.gapStart += count;
+			this.gapEnd += count;
+		}
+	}
+	
+	/**
+	 * Make the gap at least length long, and as long as the tokens
+	 * */
+	private void grow(int length){
+		int size = this.size();
+		int capacity = size + Math.max(length , size + 16);
+		int after = this.tokens.length - this.gapEnd;
+		String[] tokens = new String[capacity];
+		int[] leaves = new int[capacity];
+		System.arraycopy(this.tokens, 0, tokens, 0, this.gapStart);
+		System.arraycopy(this.leaves, 0, leaves, 0, this.gapStart);
+		System.arraycopy(this.tokens, this.gapEnd, tokens, capacity - after, after);
+		System.arraycopy(this.leaves, this.gapEnd, leaves, capacity - after, after);
+		this.tokens = tokens;
+		this.leaves = leaves;
+		this.gapEnd = capacity - after;
+	}
+}
@@ -0,0 +1,16 @@
+package parser;
+
+import java.io.IOException;
+
+/**
+ * interface TokenSource
+ * Input of the parser, pulled one token at a time
+ * */
+public interface TokenSource {
+	
+	/**
+	 * function next
+	 * next token of input, null when input has ended
+	 * */
+	String next() throws IOException;
+}
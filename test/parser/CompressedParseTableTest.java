@@ -0,0 +1,149 @@
+package parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import grammar.Grammar;
+import main.GrammarGenerator;
+import main.GrammarIO;
+import main.SentenceGenerator;
+
+/**
+ * class CompressedParseTableTest
+ * Default reductions of a compressed table find every error at the same token as the dense table, but in
+ * 	the state reached by those reductions, and recovery goes on from there (see ParseTable.compress)
+ * */
+public class CompressedParseTableTest {
+	
+	private static final String STATEMENTS = "P :: SL $\n"
+			+ "SL :: SL S\n"
+			+ "SL :: S\n"
+			+ "S :: id = E ;\n"
+			+ "E :: E + T\n"
+			+ "E :: T\n"
+			+ "T :: T * F\n"
+			+ "T :: F\n"
+			+ "F :: ( E )\n"
+			+ "F :: id\n"
+			+ "F :: num\n";
+	
+	/**
+	 * Sentences of random grammars with one token dropped, replaced or added
+	 * */
+	@Test
+	public void errorsAtSameToken() throws IOException{
+		int rejected = 0;
+		for(long seed = 1 ; seed <= 40 ; seed++){
+			GrammarGenerator generator = new GrammarGenerator();
+			generator.nonTerminals = 4 + (int) (seed % 6);
+			generator.productions = 3 * generator.nonTerminals;
+			generator.terminals = 6;
+			generator.maxBodyLength = 3;
+			generator.nullableRatio = 0.2;
+			generator.recursion = GrammarGenerator.RECURSION.values()[(int) (seed % 4)];
+			generator.attempts = 500;
+			ArrayList<String> lines;
+			try {
+				lines = generator.generateSLR(seed * 1000);
+			} catch(IllegalStateException e){
+				continue;	// no SLR grammar with these settings
+			}
+			Grammar grammar = GrammarIO.loadFromLines(lines);
+			ParseTable dense = grammar.getParseTable();
+			ParseTable compressed = dense.compress();
+			SentenceGenerator sentences = new SentenceGenerator(grammar);
+			Random random = new Random(seed);
+			
+			for(int i = 0 ; i < 50 ; i++){
+				ArrayList<String> tokens = sentences.generate(10 + random.nextInt(60) , random);
+				int at = random.nextInt(tokens.size());
+				String token = tokens.get(random.nextInt(tokens.size()));
+				switch(random.nextInt(3)){
+				case 0: tokens.remove(at); break;
+				case 1: tokens.set(at , token); break;
+				default: tokens.add(at , token);
+				}
+				
+				ParseResult expected = new SLRParser(dense).recognizeAll(tokens);
+				ParseResult result = new SLRParser(compressed).recognizeAll(tokens);
+				assertEquals(tokens.toString() , expected.accepted , result.accepted);
+				if(expected.accepted) continue;
+				rejected++;
+				SyntaxError denseError = expected.errors.get(0);
+				SyntaxError error = result.errors.get(0);
+				assertEquals(tokens.toString() , denseError.errorOffset , error.errorOffset);
+				
+				// the state after default reductions expects a part of what the state before them did
+				assertTrue(tokens.toString() , denseError.expected(dense).containsAll(error.expected(compressed)));
+			}
+		}
+		assertTrue(rejected + " inputs rejected" , rejected > 500);
+	}
+	
+	/**
+	 * After "id = id" the dense table errors in the state of F :: id, which reduces on every token that can
+	 * 	follow F. The compressed one reduces up to E first, where only ";" and "+" can come
+	 * */
+	@Test
+	public void errorStateAfterDefaultReductions() throws IOException{
+		ParseTable dense = load(STATEMENTS).getParseTable();
+		ParseTable compressed = dense.compress();
+		ArrayList<String> tokens = tokens("id = id id ; $ $");
+		
+		SyntaxError denseError = new SLRParser(dense).recognizeAll(tokens).errors.get(0);
+		SyntaxError error = new SLRParser(compressed).recognizeAll(tokens).errors.get(0);
+		assertEquals(4 , denseError.errorOffset);
+		assertEquals(4 , error.errorOffset);
+		assertNotEquals(denseError.state_no , error.state_no);
+		assertEquals(new HashSet<String>(Arrays.asList(";" , "+" , "*" , ")")) , new HashSet<String>(denseError.expected(dense)));
+		assertEquals(new HashSet<String>(Arrays.asList(";" , "+")) , new HashSet<String>(error.expected(compressed)));
+	}
+	
+	/**
+	 * Recovery from the reduced stack can find other errors after the first one: here the dense table
+	 * 	finds the missing ";" at the end and the compressed one does not
+	 * */
+	@Test
+	public void recoveryFromReducedStack() throws IOException{
+		ParseTable dense = load(STATEMENTS).getParseTable();
+		ArrayList<String> tokens = tokens("id = ; * id + id $ $");
+		
+		ParseResult expected = new SLRParser(dense).recognizeAll(tokens);
+		ParseResult result = new SLRParser(dense.compress()).recognizeAll(tokens);
+		assertFalse(result.accepted);
+		assertEquals(Arrays.asList(3 , 8) , offsets(expected.errors));
+		assertEquals(Arrays.asList(3) , offsets(result.errors));
+	}
+	
+	private static List<Integer> offsets(List<SyntaxError> errors){
+		ArrayList<Integer> offsets = new ArrayList<Integer>();
+		for(SyntaxError error : errors) offsets.add(error.errorOffset);
+		return offsets;
+	}
+	
+	private static ArrayList<String> tokens(String text){
+		return new ArrayList<String>(Arrays.asList(text.split(" ")));
+	}
+	
+	private static Grammar load(String text) throws IOException{
+		File file = File.createTempFile("grammar", ".txt");
+		file.deleteOnExit();
+		PrintWriter out = new PrintWriter(file);
+		out.print(text);
+		out.close();
+		return GrammarIO.loadFromFile(file.getPath());
+	}
+}
@@ -0,0 +1,224 @@
+package parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import grammar.Grammar;
+import main.GrammarGenerator;
+import main.GrammarIO;
+import main.SentenceGenerator;
+
+/**
+ * class IncrementalParserTest
+ * Trees after edits are those of parsing the edited tokens from scratch, and an edit of one token in a
+ * 	long list shifts about one token, wherever it is and whichever way the list recurses
+ * */
+public class IncrementalParserTest {
+	
+	private static final String LEFT = "P :: SL $\n"
+			+ "SL :: SL S\n"
+			+ "SL :: S\n"
+			+ "S :: id = E ;\n"
+			+ "E :: E + T\n"
+			+ "E :: T\n"
+			+ "T :: T * F\n"
+			+ "T :: F\n"
+			+ "F :: ( E )\n"
+			+ "F :: id\n"
+			+ "F :: num\n";
+	
+	private static final String RIGHT = LEFT.replace("SL :: SL S\n", "SL :: S SL\n");
+	
+	private static final int STATEMENTS = 20000;
+	
+	/**
+	 * most tokens an edit of one token may shift, the token itself and a few around it
+	 * */
+	private static final int SHIFT_LIMIT = 5;
+	
+	@Test
+	public void oneTokenEditInLeftRecursiveList() throws IOException{
+		this.checkOneTokenEdits(load(LEFT) , statements() , STATEMENTS , 4 , 12);
+	}
+	
+	@Test
+	public void oneTokenEditInRightRecursiveList() throws IOException{
+		this.checkOneTokenEdits(load(RIGHT) , statements() , STATEMENTS , 4 , 12);
+	}
+	
+	/**
+	 * "+" of E :: E + T are tokens of the list itself, not of subtrees that could be taken whole
+	 * */
+	@Test
+	public void oneTokenEditInLongExpression() throws IOException{
+		ArrayList<String> tokens = new ArrayList<String>(Arrays.asList("id" , "=" , "num"));
+		for(int i = 0 ; i < 6 * STATEMENTS ; i++){
+			tokens.add("+");
+			tokens.add("num");
+		}
+		tokens.addAll(Arrays.asList(";" , "$" , "$"));
+		this.checkOneTokenEdits(load(LEFT) , tokens , 6 * STATEMENTS + 1 , 2 , 2);
+	}
+	
+	/**
+	 * id = id + num * ( id + num ) ; for each statement, 12 tokens
+	 * */
+	private static ArrayList<String> statements(){
+		ArrayList<String> tokens = new ArrayList<String>();
+		for(int i = 0 ; i < STATEMENTS ; i++){
+			for(String token : "id = id + num * ( id + num ) ;".split(" ")) tokens.add(token);
+		}
+		tokens.add("$");
+		tokens.add("$");		// end marker
+		return tokens;
+	}
+	
+	/**
+	 * The list in tokens has elements every step tokens, with a num first tokens into each. Replace that num, 
+	 * 	add a "+ num" after it and remove it, in the first, middle and last element
+	 * */
+	private void checkOneTokenEdits(Grammar grammar , ArrayList<String> tokens , int elements , int first , int step){
+		ParseTable table = grammar.getParseTable();
+		IncrementalParser parser = new IncrementalParser(table);
+		assertTrue(parser.parse(tokens).accepted);
+		assertEquals(tokens.size() - 1 , parser.shiftedTokens());
+		
+		for(int element : new int[]{0 , elements / 2 , elements - 1}){
+			int num = first + step * element;
+			this.edit(parser , table , tokens , num , 1 , "id");
+			assertTrue(parser.shiftedTokens() + " tokens shifted" , parser.shiftedTokens() <= SHIFT_LIMIT);
+			this.edit(parser , table , tokens , num + 1 , 0 , "+" , "num");
+			assertTrue(parser.shiftedTokens() + " tokens shifted" , parser.shiftedTokens() <= SHIFT_LIMIT);
+			this.edit(parser , table , tokens , num + 1 , 2);
+			assertTrue(parser.shiftedTokens() + " tokens shifted" , parser.shiftedTokens() <= SHIFT_LIMIT);
+		}
+	}
+	
+	@Test
+	public void rejectedEditKeepsTree() throws IOException{
+		ParseTable table = load(LEFT).getParseTable();
+		ArrayList<String> tokens = new ArrayList<String>();
+		for(int i = 0 ; i < STATEMENTS ; i++){
+			for(String token : "id = num ;".split(" ")) tokens.add(token);
+		}
+		tokens.add("$");
+		tokens.add("$");
+		
+		IncrementalParser parser = new IncrementalParser(table);
+		parser.parse(tokens);
+		int middle = 4 * (STATEMENTS / 2) + 2;
+		ParseResult result = parser.edit(middle , 0 , Arrays.asList("="));
+		assertFalse(result.accepted);
+		assertEquals(middle + 1 , result.errorOffset);
+		assertEquals(-1 , parser.root());
+		
+		// both edits together change nothing, the next parse costs no more than one of a token
+		tokens.add(middle , "=");
+		this.edit(parser , table , tokens , middle , 1);
+		assertTrue(parser.shiftedTokens() + " tokens shifted" , parser.shiftedTokens() <= SHIFT_LIMIT);
+	}
+	
+	/**
+	 * Random edits of random sentences of random grammars, with nullable non terminals and lists of
+	 * 	every kind, against parsing the result from scratch
+	 * */
+	@Test
+	public void randomEdits() throws IOException{
+		int accepted = 0;
+		for(long seed = 1 ; seed <= 40 ; seed++){
+			GrammarGenerator generator = new GrammarGenerator();
+			generator.nonTerminals = 4 + (int) (seed % 5);
+			generator.productions = 3 * generator.nonTerminals;
+			generator.terminals = 4;
+			generator.maxBodyLength = 3;
+			generator.nullableRatio = 0.3;
+			generator.recursion = GrammarGenerator.RECURSION.values()[(int) (seed % 4)];
+			generator.attempts = 500;
+			ArrayList<String> lines;
+			try {
+				lines = generator.generateSLR(seed * 1000);
+			} catch(IllegalStateException e){
+				continue;	// no SLR grammar with these settings
+			}
+			Grammar grammar = GrammarIO.loadFromLines(lines);
+			ParseTable table = grammar.getParseTable();
+			SentenceGenerator sentences = new SentenceGenerator(grammar);
+			Random random = new Random(seed);
+			
+			ArrayList<String> tokens = sentences.generate(20 + random.nextInt(40) , random);
+			IncrementalParser parser = new IncrementalParser(table);
+			parser.parse(tokens);
+			for(int step = 0 ; step < 80 ; step++){
+				int start = random.nextInt(tokens.size() + 1);
+				int removed = random.nextInt(Math.min(3 , tokens.size() - start) + 1);
+				ArrayList<String> inserted = new ArrayList<String>();
+				if(random.nextBoolean() || tokens.isEmpty()) {
+					// often a sentence again
+					inserted.addAll(tokens.subList(start, start + removed));
+				} else {
+					for(int i = random.nextInt(3) ; i > 0 ; i--) inserted.add(tokens.get(random.nextInt(tokens.size())));
+				}
+				if(this.edit(parser , table , tokens , start , removed , inserted)) accepted++;
+			}
+		}
+		assertTrue(accepted + " edits accepted" , accepted > 100);
+	}
+	
+	private void edit(IncrementalParser parser , ParseTable table , ArrayList<String> tokens , int start , int removed
+			, String... inserted){
+		assertTrue(this.edit(parser , table , tokens , start , removed , Arrays.asList(inserted)));
+	}
+	
+	/**
+	 * Make the edit on tokens and with parser, the result must be that of parsing tokens from scratch. true
+	 * 	if accepted
+	 * */
+	private boolean edit(IncrementalParser parser , ParseTable table , ArrayList<String> tokens , int start , int removed
+			, List<String> inserted){
+		ParseResult result = parser.edit(start , removed , inserted);
+		tokens.subList(start, start + removed).clear();
+		tokens.addAll(start, inserted);
+		assertEquals(tokens , parser.getTokens());
+		
+		ParseTreeBuilder builder = new ParseTreeBuilder(table);
+		ParseResult expected;
+		try {
+			expected = new SLRParser(table).parse(new ListTokenSource(tokens) , builder);
+		} catch(IOException e){
+			throw new AssertionError(e);
+		}
+		assertEquals("accepted after edit " + start + " " + removed + " " + inserted , expected.accepted , result.accepted);
+		if(expected.accepted) assertEquals(print(builder.getTree()) , print(parser.toParseTree()));
+		else assertEquals(expected.errorOffset , result.errorOffset);
+		return result.accepted;
+	}
+	
+	private static String print(ParseTree tree){
+		StringWriter text = new StringWriter();
+		PrintWriter out = new PrintWriter(text);
+		tree.print(out);
+		out.flush();
+		return text.toString();
+	}
+	
+	private static Grammar load(String text) throws IOException{
+		File file = File.createTempFile("grammar", ".txt");
+		file.deleteOnExit();
+		PrintWriter out = new PrintWriter(file);
+		out.print(text);
+		out.close();
+		return GrammarIO.loadFromFile(file.getPath());
+	}
+}
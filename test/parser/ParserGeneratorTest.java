@@ -0,0 +1,249 @@
+package parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Random;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import grammar.Grammar;
+import grammar.Production;
+import main.GrammarIO;
+
+/**
+ * class ParserGeneratorTest
+ * Parsers written by ParserGenerator are compiled and take the same actions as SLRParser.parse on the same
+ * 	table, for random sentences of the grammar and broken copies of them
+ * */
+public class ParserGeneratorTest {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	/**
+	 * grammar from README
+	 * */
+	private static final String SMALL = "S :: A $\n"
+			+ "A :: e B\n"
+			+ "B :: e B D\n"
+			+ "B :: a C\n"
+			+ "C :: a C\n"
+			+ "C :: r\n"
+			+ "D :: e B D\n"
+			+ "D :: r\n";
+	
+	private static final String STATEMENTS = "P :: SL $\n"
+			+ "SL :: SL S\n"
+			+ "SL :: S\n"
+			+ "S :: id = E ;\n"
+			+ "S :: if ( E ) S\n"
+			+ "S :: while ( E ) S\n"
+			+ "S :: { SL }\n"
+			+ "E :: E + T\n"
+			+ "E :: E - T\n"
+			+ "E :: T\n"
+			+ "T :: T * F\n"
+			+ "T :: F\n"
+			+ "F :: ( E )\n"
+			+ "F :: id\n"
+			+ "F :: num\n"
+			+ "F :: - F\n";
+	
+	@Test
+	public void smallGrammar() throws Exception{
+		this.check(SMALL , "Small" , 300 , 30);
+	}
+	
+	@Test
+	public void statementGrammar() throws Exception{
+		this.check(STATEMENTS , "Statements" , 300 , 200);
+	}
+	
+	/**
+	 * a statement kind for each keyword: more states and symbols than one switch of the generated parser can
+	 * 	take (12539 states, 2522 symbols), so its dispatch must be split into methods
+	 * */
+	@Test
+	public void bigGrammar() throws Exception{
+		StringBuilder grammar = new StringBuilder(STATEMENTS);
+		for(int i = 0 ; i < 2500 ; i++) grammar.append("S :: key kw" + i + " ( id ) ;\n");
+		this.check(grammar.toString() , "Big" , 20 , 2000);
+	}
+	
+	private void check(String text , String className , int inputs , int length) throws Exception{
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeTrue("needs a JDK" , compiler != null);
+		
+		Grammar grammar = load(text);
+		ParseTable table = grammar.getParseTable();
+		
+		File directory = this.folder.newFolder();
+		File source = new File(directory , className + ".java");
+		PrintWriter out = new PrintWriter(source);
+		ParserGenerator.generate(table , null , className , out);
+		out.close();
+		
+		ByteArrayOutputStream messages = new ByteArrayOutputStream();
+		int status = compiler.run(null , messages , messages , "-nowarn" , "-d" , directory.getPath() , source.getPath());
+		assertEquals("generated parser of " + table.stateCount() + " states does not compile\n" + messages , 0 , status);
+		
+		URLClassLoader loader = new URLClassLoader(new URL[]{directory.toURI().toURL()});
+		Class<?> listenerClass = loader.loadClass(className + "$Listener");
+		Method parse = loader.loadClass(className).getMethod("parse" , String[].class , listenerClass);
+		
+		IdentityHashMap<Production, Integer> index = new IdentityHashMap<Production, Integer>();
+		for(int i = 0 ; i < table.productionCount() ; i++) index.put(table.production(i) , i);
+		
+		Random random = new Random(1);
+		int accepted = 0;
+		for(int i = 0 ; i < inputs ; i++){
+			ArrayList<String> tokens = sentence(grammar , random , length);
+			if(compare(table , index , parse , listenerClass , tokens)) accepted++;
+			compare(table , index , parse , listenerClass , broken(tokens , random));
+		}
+		loader.close();
+		assertEquals("every sentence of the grammar is accepted" , inputs , accepted);
+	}
+	
+	/**
+	 * Run SLRParser and the generated parser on tokens, they must give the same actions and error position.
+	 * 	true if tokens were accepted
+	 * */
+	private static boolean compare(ParseTable table , IdentityHashMap<Production, Integer> index , Method parse
+			, Class<?> listenerClass , ArrayList<String> tokens) throws Exception{
+		
+		ParseResult result = new SLRParser(table).parse(tokens);
+		ArrayList<String> expected = new ArrayList<String>();
+		for(Action action : result.actions){
+			if(action.type == ACTION_TYPE.SHIFT) expected.add("SHIFT " + action.state_no);
+			else if(action.type == ACTION_TYPE.REDUCE) expected.add("REDUCE " + index.get(action.reduceProduction));
+			else expected.add("ACCEPT");
+		}
+		if(! result.accepted) expected.add("ERROR " + result.errorOffset);
+		
+		final ArrayList<String> actual = new ArrayList<String>();
+		Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader() , new Class<?>[]{listenerClass}
+				, new InvocationHandler(){
+			@Override
+			public Object invoke(Object proxy , Method method , Object[] args){
+				if(method.getName().equals("shift")) actual.add("SHIFT " + args[0]);
+				else if(method.getName().equals("reduce")) actual.add("REDUCE " + args[0]);
+				else actual.add("ACCEPT");
+				return null;
+			}
+		});
+		int errorOffset = (Integer) parse.invoke(null , tokens.toArray(new String[tokens.size()]) , listener);
+		if(errorOffset >= 0) actual.add("ERROR " + errorOffset);
+		
+		assertEquals("actions on " + tokens , expected , actual);
+		return result.accepted;
+	}
+	
+	/**
+	 * Random sentence of grammar and the end marker, from a leftmost derivation taking productions at random
+	 * 	until it has about length tokens, then those leading to the shortest sentences
+	 * */
+	private static ArrayList<String> sentence(Grammar grammar , Random random , int length){
+		Production[] productions = grammar.getProductions();
+		HashMap<String, ArrayList<Production>> byHead = new HashMap<String, ArrayList<Production>>();
+		for(Production production : productions){
+			if(! byHead.containsKey(production.head)) byHead.put(production.head , new ArrayList<Production>());
+			byHead.get(production.head).add(production);
+		}
+		
+		// length of shortest sentence of each non terminal, until nothing changes
+		HashMap<String, Integer> shortest = new HashMap<String, Integer>();
+		boolean changed = true;
+		while(changed){
+			changed = false;
+			for(Production production : productions){
+				int sum = shortestLength(production , byHead , shortest);
+				Integer old = shortest.get(production.head);
+				if(sum >= 0 && (old == null || sum < old)) {
+					shortest.put(production.head , sum);
+					changed = true;
+				}
+			}
+		}
+		
+		ArrayList<String> tokens = new ArrayList<String>();
+		ArrayList<String> pending = new ArrayList<String>();	// symbols still to derive, next one last
+		pending.add(productions[0].head);		// start symbol, its sentence is followed by the end marker
+		while(! pending.isEmpty()){
+			String symbol = pending.remove(pending.size() - 1);
+			ArrayList<Production> own = byHead.get(symbol);
+			if(own == null) {
+				tokens.add(symbol);
+				continue;
+			}
+			Production chosen = own.get(random.nextInt(own.size()));
+			if(tokens.size() + pending.size() >= length) {
+				for(Production production : own){
+					if(shortestLength(production , byHead , shortest) < shortestLength(chosen , byHead , shortest)) chosen = production;
+				}
+			}
+			for(int i = chosen.body.length - 1 ; i >= 0 ; i--) pending.add(chosen.body[i]);
+		}
+		tokens.add("$");
+		return tokens;
+	}
+	
+	/**
+	 * tokens in shortest sentence of body of production, -1 if not known yet. Every production of the
+	 * 	grammars here derives some sentence, so all are known once shortest is done
+	 * */
+	private static int shortestLength(Production production , HashMap<String, ArrayList<Production>> byHead
+			, HashMap<String, Integer> shortest){
+		int sum = 0;
+		for(String symbol : production.body){
+			if(! byHead.containsKey(symbol)) sum++;
+			else if(shortest.containsKey(symbol)) sum += shortest.get(symbol);
+			else return -1;
+		}
+		return sum;
+	}
+	
+	/**
+	 * tokens with one token dropped, replaced, added or the input cut short. A replacing or added token may
+	 * 	be no symbol of the grammar
+	 * */
+	private static ArrayList<String> broken(ArrayList<String> tokens , Random random){
+		ArrayList<String> broken = new ArrayList<String>(tokens);
+		int at = random.nextInt(broken.size() + 1);
+		String token = random.nextInt(10) == 0 ? "not-a-symbol" : tokens.get(random.nextInt(tokens.size()));
+		switch(random.nextInt(4)){
+		case 0: if(at < broken.size()) broken.remove(at); break;
+		case 1: if(at < broken.size()) broken.set(at , token); break;
+		case 2: broken.add(at , token); break;
+		default: while(broken.size() > at) broken.remove(broken.size() - 1);
+		}
+		return broken;
+	}
+	
+	private static Grammar load(String text) throws IOException{
+		File file = File.createTempFile("grammar", ".txt");
+		file.deleteOnExit();
+		PrintWriter out = new PrintWriter(file);
+		out.print(text);
+		out.close();
+		return GrammarIO.loadFromFile(file.getPath());
+	}
+}
@@ -0,0 +1,81 @@
+package parser;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import grammar.Grammar;
+import main.GrammarIO;
+
+/**
+ * class SLRParserAllocationTest
+ * SLRParser.recognize allocates its stack and result for each parse, and nothing for each token.
+ * 	The statement list is left recursive and statements are not nested, so the stack stays small however
+ * 	long the input is and bytes allocated over tokens parsed goes to 0
+ * */
+public class SLRParserAllocationTest {
+	
+	private static final String GRAMMAR = "P :: SL $\n"
+			+ "SL :: SL S\n"
+			+ "SL :: S\n"
+			+ "S :: id = E ;\n"
+			+ "E :: E + T\n"
+			+ "E :: T\n"
+			+ "T :: T * F\n"
+			+ "T :: F\n"
+			+ "F :: ( E )\n"
+			+ "F :: id\n"
+			+ "F :: num\n";
+	
+	private static final int STATEMENTS = 5000;
+	private static final int WARMUP = 300;
+	private static final int RUNS = 50;
+	
+	/**
+	 * most bytes recognize may allocate for each token
+	 * */
+	private static final double LIMIT = 0.1;
+	
+	@Test
+	public void recognizeAllocatesNothingForEachToken() throws IOException{
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		
+		SLRParser parser = new SLRParser(load(GRAMMAR));
+		ArrayList<String> input = new ArrayList<String>();
+		for(int i = 0 ; i < STATEMENTS ; i++){
+			for(String token : "id = id + num * ( id + num ) ;".split(" ")) input.add(token);
+		}
+		input.add("$");
+		input.add("$");		// end marker
+		
+		// let the JIT compile the parse loop first
+		for(int i = 0 ; i < WARMUP ; i++) assertTrue(parser.recognize(input).accepted);
+		
+		long thread = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(thread);
+		for(int i = 0 ; i < RUNS ; i++) parser.recognize(input);
+		long allocated = threads.getThreadAllocatedBytes(thread) - before;
+		
+		double perToken = (double) allocated / RUNS / input.size();
+		assertTrue(allocated / RUNS + " bytes per parse of " + input.size() + " tokens", perToken <= LIMIT);
+	}
+	
+	private static Grammar load(String text) throws IOException{
+		File file = File.createTempFile("grammar", ".txt");
+		file.deleteOnExit();
+		PrintWriter out = new PrintWriter(file);
+		out.print(text);
+		out.close();
+		return GrammarIO.loadFromFile(file.getPath());
+	}
+}